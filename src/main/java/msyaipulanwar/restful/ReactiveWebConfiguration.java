@@ -0,0 +1,98 @@
+package msyaipulanwar.restful;
+
+import msyaipulanwar.restful.entity.Uuids;
+import msyaipulanwar.restful.resolver.ReactiveUserArgumentResolver;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.convert.WritingConverter;
+import org.springframework.data.r2dbc.convert.R2dbcCustomConversions;
+import org.springframework.data.r2dbc.dialect.MySqlDialect;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.web.reactive.config.BlockingExecutionConfigurer;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.reactive.result.method.annotation.ArgumentResolverConfigurer;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * WebFlux setup for the reactive profile (see application-reactive.properties). The server
+ * is Netty, so idle keep-alive connections cost a channel and not a thread.
+ * <p>
+ * Only the contact API is non-blocking. The user, auth and address controllers, and the
+ * contact bulk, change feed and import endpoints, still call the JPA services, so handlers
+ * without a reactive return type are moved off the event loop onto the application task
+ * executor.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveWebConfiguration implements WebFluxConfigurer {
+    private final ReactiveUserArgumentResolver userArgumentResolver;
+
+    private final AsyncTaskExecutor blockingExecutor;
+
+    public ReactiveWebConfiguration(ReactiveUserArgumentResolver userArgumentResolver,
+                                    @Qualifier("applicationTaskExecutor") AsyncTaskExecutor blockingExecutor) {
+        this.userArgumentResolver = userArgumentResolver;
+        this.blockingExecutor = blockingExecutor;
+    }
+
+    @Override
+    public void configureArgumentResolvers(ArgumentResolverConfigurer configurer) {
+        configurer.addCustomResolver(userArgumentResolver);
+    }
+
+    /**
+     * CBOR next to JSON, as in WebConfiguration.
+     */
+    @Override
+    public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+        configurer.customCodecs().register(new Jackson2CborDecoder());
+        configurer.customCodecs().register(new Jackson2CborEncoder());
+    }
+
+    @Override
+    public void configureBlockingExecution(BlockingExecutionConfigurer configurer) {
+        configurer.setExecutor(blockingExecutor);
+    }
+
+    /**
+     * Tomcat is on the classpath for the servlet stack and would otherwise be picked first.
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    /**
+     * Ids are BINARY(16), as Hibernate stores them for the JPA entities.
+     */
+    @Bean
+    public R2dbcCustomConversions r2dbcCustomConversions() {
+        return R2dbcCustomConversions.of(MySqlDialect.INSTANCE, List.of(new UuidToBytes(), new BytesToUuid()));
+    }
+
+    @WritingConverter
+    static class UuidToBytes implements Converter<UUID, byte[]> {
+        @Override
+        public byte[] convert(UUID source) {
+            return Uuids.toBytes(source);
+        }
+    }
+
+    @ReadingConverter
+    static class BytesToUuid implements Converter<byte[], UUID> {
+        @Override
+        public UUID convert(byte[] source) {
+            return Uuids.fromBytes(source);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package msyaipulanwar.restful;
+
+import com.zaxxer.hikari.HikariDataSource;
+import msyaipulanwar.restful.shard.ShardProperties;
+import msyaipulanwar.restful.shard.ShardRebalancer;
+import msyaipulanwar.restful.shard.ShardRouter;
+import msyaipulanwar.restful.shard.ShardRoutingDataSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One pool per {@code app.shard.datasources} entry, only when {@code app.shard.enabled} is
+ * set; pools are named after their shard in the hikaricp metrics. A user and everything
+ * they own live on the shard picked by {@link ShardRouter}.
+ * <p>
+ * Not combined with the replica pools of {@link DataSourceConfiguration}. Hibernate only
+ * manages the schema of the first shard, the others need it applied separately.
+ * <p>
+ * After changing the shard list, stop the API and run the application once with
+ * {@code --app.shard.rebalance=run} (or {@code dry-run}) and
+ * {@code --spring.main.web-application-type=none} to move users to their new shard.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.shard.enabled", havingValue = "true")
+public class ShardingConfiguration {
+    private static final Logger log = LoggerFactory.getLogger(ShardingConfiguration.class);
+
+    @Bean
+    public ShardDataSources shardDataSources(ShardProperties properties, DataSourceProperties dataSourceProperties) {
+        if (properties.getDatasources().isEmpty()) {
+            throw new IllegalStateException("app.shard.enabled is set but app.shard.datasources is empty");
+        }
+        Map<String, DataSource> dataSources = new LinkedHashMap<>();
+        properties.getDatasources().forEach((shard, settings) -> {
+            HikariDataSource dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(dataSourceProperties.determineDriverClassName())
+                    .url(settings.getUrl())
+                    .username(settings.getUsername() != null ? settings.getUsername() : dataSourceProperties.getUsername())
+                    .password(settings.getPassword() != null ? settings.getPassword() : dataSourceProperties.getPassword())
+                    .build();
+            dataSource.setPoolName(shard);
+            dataSource.setMaximumPoolSize(settings.getMaximumPoolSize());
+            dataSources.put(shard, dataSource);
+        });
+        return new ShardDataSources(dataSources);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("shardDataSources") ShardDataSources shards, ShardRouter shardRouter) {
+        String defaultShard = shards.get().keySet().iterator().next();
+        return new LazyConnectionDataSourceProxy(new ShardRoutingDataSource(shards.get(), defaultShard, shardRouter));
+    }
+
+    @Bean
+    public ShardRebalancer shardRebalancer(@Qualifier("shardDataSources") ShardDataSources shards, ShardRouter shardRouter,
+                                           @Value("${app.shard.rebalance-batch-size:500}") int batchSize) {
+        return new ShardRebalancer(shards.get(), shardRouter, batchSize);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.shard.rebalance")
+    public ApplicationRunner shardRebalanceRunner(ShardRebalancer shardRebalancer, ConfigurableApplicationContext context,
+                                                  @Value("${app.shard.rebalance}") String mode) {
+        return args -> {
+            boolean dryRun = !"run".equals(mode);
+            int moved = shardRebalancer.rebalance(dryRun);
+            log.info("Shard rebalance {}: {} users", dryRun ? "dry run" : "done", moved);
+            System.exit(SpringApplication.exit(context));
+        };
+    }
+
+    /**
+     * The raw per-shard pools, for work that has to address a shard directly.
+     */
+    public record ShardDataSources(Map<String, DataSource> dataSources) implements DisposableBean {
+
+        public Map<String, DataSource> get() {
+            return dataSources;
+        }
+
+        @Override
+        public void destroy() {
+            dataSources.values().forEach(dataSource -> ((HikariDataSource) dataSource).close());
+        }
+    }
+}
@@ -1,13 +1,22 @@
 package msyaipulanwar.restful;
 
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import msyaipulanwar.restful.resolver.UserArgumentResolver;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.web.method.support.HandlerMethodArgumentResolver;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 import java.util.List;
 
+/**
+ * Every endpoint speaks JSON and CBOR ({@code application/cbor}); the Accept and
+ * Content-Type headers pick the format and JSON stays the default. CBOR carries the same
+ * WebResponse fields, just binary encoded.
+ */
 @Configuration
 public class WebConfiguration implements WebMvcConfigurer {
     private final UserArgumentResolver userArgumentResolver;
@@ -16,6 +25,14 @@ public class WebConfiguration implements WebMvcConfigurer {
         this.userArgumentResolver = userArgumentResolver;
     }
 
+    /**
+     * Built from the application's Jackson settings, so both formats serialize the same way.
+     */
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
     @Override
     public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
         WebMvcConfigurer.super.addArgumentResolvers(resolvers);
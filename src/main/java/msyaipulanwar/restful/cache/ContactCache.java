@@ -0,0 +1,127 @@
+package msyaipulanwar.restful.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import msyaipulanwar.restful.model.ContactResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Read cache for single contacts keyed by (username, contactId), sized and expired by
+ * {@code app.contact.cache.*}. Hit ratio is published as {@code cache.*{cache=contactCache}}.
+ * <p>
+ * Concurrent readers of a missing key share one load, and writers invalidate once their
+ * transaction has completed. An invalidation drops an in-flight load of the same key, so a
+ * reader that saw the old row cannot put it back after the writer committed.
+ * <p>
+ * The load itself runs on the calling thread outside of the cache's locks: the map only
+ * holds a pending future, so a virtual thread waiting on the database never pins its
+ * carrier inside a synchronized compute.
+ * <p>
+ * The cache is local to each node and invalidations are not sent to the others, so a GET
+ * on another node may return the previous state of a contact for up to
+ * {@code app.contact.cache.ttl}. Conditional requests do not use it, their version is read
+ * from the database.
+ */
+@Component
+public class ContactCache {
+    private final AsyncCache<Key, ContactResponse> cache;
+
+    public ContactCache(@Value("${app.contact.cache.maximum-size:10000}") long maximumSize,
+                        @Value("${app.contact.cache.ttl:30s}") Duration ttl,
+                        MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), "contactCache");
+    }
+
+    /**
+     * Cached responses are shared between requests and must not be modified. Inside a
+     * read-write transaction the cache is bypassed: the load may see the transaction's own
+     * uncommitted writes, which must neither be shared nor be shadowed by a cached row.
+     */
+    public ContactResponse get(String username, UUID contactId, Supplier<ContactResponse> loader) {
+        if (inReadWriteTransaction()) {
+            return loader.get();
+        }
+
+        CompletableFuture<ContactResponse> load = new CompletableFuture<>();
+        CompletableFuture<ContactResponse> future = cache.get(new Key(username, contactId), (key, executor) -> load);
+        if (future == load) {
+            try {
+                load.complete(loader.get());
+            } catch (RuntimeException e) {
+                load.completeExceptionally(e);
+                throw e;
+            }
+        }
+
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Empty inside a read-write transaction, like {@link #get}: the transaction may already
+     * have changed or deleted the cached row.
+     */
+    public Optional<ContactResponse> getIfPresent(String username, UUID contactId) {
+        if (inReadWriteTransaction()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(cache.synchronous().getIfPresent(new Key(username, contactId)));
+    }
+
+    /**
+     * Invalidate when the current transaction completes, or immediately without one.
+     */
+    public void invalidate(String username, UUID contactId) {
+        Key key = new Key(username, contactId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cache.synchronous().invalidate(key);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                cache.synchronous().invalidate(key);
+            }
+        });
+    }
+
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return cache.synchronous().stats();
+    }
+
+    private static boolean inReadWriteTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    private record Key(String username, UUID contactId) {
+    }
+}
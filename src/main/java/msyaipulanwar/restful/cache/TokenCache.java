@@ -0,0 +1,136 @@
+package msyaipulanwar.restful.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import msyaipulanwar.restful.entity.User;
+import msyaipulanwar.restful.repository.UserPrincipal;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded token to principal cache used by the argument resolver, so that authenticated
+ * requests do not need a users lookup every time. Every hit returns a fresh detached
+ * {@link User} so callers never share state. Hit, miss and eviction counters are published
+ * as {@code cache.*{cache=tokenCache}}.
+ * <p>
+ * The cache is local to each node. Logout, login and password changes only invalidate the
+ * entry on the node that handled them, so another node keeps accepting the old token until
+ * its entry expires. {@code app.auth.token-cache.ttl} bounds that window and should stay short.
+ * <p>
+ * Opaque tokens that matched no user are remembered for {@code app.auth.token-cache.unknown-ttl},
+ * so a client retrying a stale or made-up token does not cost a users lookup (one per shard
+ * with sharding) on every request. They are kept apart from the principals, so a flood of
+ * random tokens cannot evict them.
+ * <p>
+ * Entries are also indexed by username, so a profile change drops every token of the user,
+ * including signed ones cached under a token that is not stored in {@code users}.
+ */
+@Component
+public class TokenCache {
+    private final Cache<String, UserPrincipal> cache;
+
+    private final Cache<String, Boolean> unknownTokens;
+
+    private final Map<String, Set<String>> tokensByUsername = new ConcurrentHashMap<>();
+
+    public TokenCache(@Value("${app.auth.token-cache.maximum-size:10000}") long maximumSize,
+                      @Value("${app.auth.token-cache.ttl:1m}") Duration ttl,
+                      @Value("${app.auth.token-cache.unknown-ttl:5s}") Duration unknownTtl,
+                      MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .<String, UserPrincipal>removalListener((token, principal, cause) -> {
+                    if (cause != RemovalCause.REPLACED) {
+                        unindex(principal.username(), token);
+                    }
+                })
+                .build();
+        this.unknownTokens = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(unknownTtl)
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "tokenCache");
+    }
+
+    public Optional<User> get(String token) {
+        UserPrincipal principal = cache.getIfPresent(token);
+        return principal == null ? Optional.empty() : Optional.of(principal.toUser());
+    }
+
+    public void put(UserPrincipal principal) {
+        if (principal.token() != null) {
+            unknownTokens.invalidate(principal.token());
+            put(principal.token(), principal);
+        }
+    }
+
+    /**
+     * @return true if the opaque token matched no user a moment ago
+     */
+    public boolean isUnknown(String token) {
+        return unknownTokens.getIfPresent(token) != null;
+    }
+
+    public void putUnknown(String token) {
+        unknownTokens.put(token, Boolean.TRUE);
+    }
+
+    /**
+     * Caches a principal under a token that is not its stored one, a signed token.
+     */
+    public void put(String token, UserPrincipal principal) {
+        tokensByUsername.computeIfAbsent(principal.username(), username -> ConcurrentHashMap.newKeySet()).add(token);
+        cache.put(token, principal);
+    }
+
+    public void invalidate(String token) {
+        if (token != null) {
+            cache.invalidate(token);
+            unknownTokens.invalidate(token);
+        }
+    }
+
+    /**
+     * Drops every cached token of the user, on this node.
+     */
+    public void invalidateUser(String username) {
+        Set<String> tokens = tokensByUsername.remove(username);
+        if (tokens != null) {
+            cache.invalidateAll(tokens);
+        }
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+        unknownTokens.invalidateAll();
+        tokensByUsername.clear();
+    }
+
+    /**
+     * Removal listeners run asynchronously, the token may have been put again meanwhile.
+     */
+    private void unindex(String username, String token) {
+        tokensByUsername.computeIfPresent(username, (key, tokens) -> {
+            if (!cache.asMap().containsKey(token)) {
+                tokens.remove(token);
+            }
+            return tokens.isEmpty() ? null : tokens;
+        });
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+}
@@ -0,0 +1,81 @@
+package msyaipulanwar.restful.controller;
+
+import msyaipulanwar.restful.entity.User;
+import msyaipulanwar.restful.model.AddressResponse;
+import msyaipulanwar.restful.model.CreateAddressRequest;
+import msyaipulanwar.restful.model.UpdateAddressRequest;
+import msyaipulanwar.restful.model.WebResponse;
+import msyaipulanwar.restful.service.AddressService;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+public class AddressController {
+    private final AddressService addressService;
+
+    public AddressController(AddressService addressService) {
+        this.addressService = addressService;
+    }
+
+    @PostMapping(
+            path = "/api/contacts/{contactId}/addresses",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE}
+    )
+    public WebResponse<AddressResponse> create (User user,
+                                                @RequestBody CreateAddressRequest request,
+                                                @PathVariable("contactId") String contactId) {
+        request.setContactId(contactId);
+        AddressResponse addressResponse = addressService.create(user, request);
+        return WebResponse.<AddressResponse>builder().data(addressResponse).build();
+    }
+
+    @GetMapping(
+            path = "/api/contacts/{contactId}/addresses/{addressId}",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE}
+    )
+    public WebResponse<AddressResponse> get (User user,
+                                             @PathVariable("contactId") String contactId,
+                                             @PathVariable("addressId") String addressId) {
+        AddressResponse addressResponse = addressService.get(user, contactId, addressId);
+        return WebResponse.<AddressResponse>builder().data(addressResponse).build();
+    }
+
+    @PutMapping(
+            path = "/api/contacts/{contactId}/addresses/{addressId}",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE}
+    )
+    public WebResponse<AddressResponse> update (User user,
+                                                @RequestBody UpdateAddressRequest request,
+                                                @PathVariable("contactId") String contactId,
+                                                @PathVariable("addressId") String addressId) {
+        request.setContactId(contactId);
+        request.setAddressId(addressId);
+        AddressResponse addressResponse = addressService.update(user, request);
+        return WebResponse.<AddressResponse>builder().data(addressResponse).build();
+    }
+
+    @DeleteMapping(
+            path = "/api/contacts/{contactId}/addresses/{addressId}",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE}
+    )
+    public WebResponse<String> remove (User user,
+                                       @PathVariable("contactId") String contactId,
+                                       @PathVariable("addressId") String addressId) {
+        addressService.remove(user, contactId, addressId);
+        return WebResponse.<String>builder().data("Ok").build();
+    }
+
+    @GetMapping(
+            path = "/api/contacts/{contactId}/addresses",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE}
+    )
+    public WebResponse<List<AddressResponse>> list (User user,
+                                                    @PathVariable("contactId") String contactId) {
+        List<AddressResponse> addressResponses = addressService.list(user, contactId);
+        return WebResponse.<List<AddressResponse>>builder().data(addressResponses).build();
+    }
+}
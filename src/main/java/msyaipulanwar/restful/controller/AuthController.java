@@ -22,8 +22,8 @@ public class AuthController {
 
     @PostMapping(
             path = "api/auth/login",
-            consumes = MediaType.APPLICATION_JSON_VALUE,
-            produces = MediaType.APPLICATION_JSON_VALUE
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE}
     )
     public WebResponse<TokenResponse> login (@RequestBody LoginUserRequest request){
         TokenResponse tokenResponse = authService.login(request);
@@ -33,7 +33,7 @@ public class AuthController {
 
     @DeleteMapping(
             path = "/api/auth/logout",
-            produces = MediaType.APPLICATION_JSON_VALUE
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE}
     )
     public WebResponse<String> logout(User user){
         authService.logout(user);
@@ -0,0 +1,47 @@
+package msyaipulanwar.restful.controller;
+
+import msyaipulanwar.restful.entity.User;
+import msyaipulanwar.restful.model.BatchRequest;
+import msyaipulanwar.restful.model.WebResponse;
+import msyaipulanwar.restful.service.BatchService;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+public class BatchController {
+    private final BatchService batchService;
+
+    public BatchController(BatchService batchService) {
+        this.batchService = batchService;
+    }
+
+    /**
+     * Runs the operations in order with the token resolved once. The response has one
+     * result per operation, at the same index. A failed atomic batch answers with the
+     * status of the failed operation.
+     */
+    @PostMapping(
+            path = "/api/batch",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE}
+    )
+    public WebResponse<List<WebResponse<Object>>> batch (User user, @RequestBody BatchRequest request) {
+        List<WebResponse<Object>> results = batchService.execute(user, request);
+        return WebResponse.<List<WebResponse<Object>>>builder().data(results).build();
+    }
+
+    @ExceptionHandler(BatchService.BatchFailedException.class)
+    public ResponseEntity<WebResponse<List<WebResponse<Object>>>> batchFailed(BatchService.BatchFailedException exception) {
+        return ResponseEntity.status(exception.getStatusCode())
+                .body(WebResponse.<List<WebResponse<Object>>>builder()
+                        .data(exception.getResults())
+                        .errors(exception.getReason())
+                        .build());
+    }
+}
@@ -1,46 +1,108 @@
 package msyaipulanwar.restful.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import msyaipulanwar.restful.entity.User;
+import msyaipulanwar.restful.model.ContactChangeResponse;
+import msyaipulanwar.restful.model.ContactChangesRequest;
 import msyaipulanwar.restful.model.ContactResponse;
 import msyaipulanwar.restful.model.CreateContactRequest;
+import msyaipulanwar.restful.model.CursorPage;
+import msyaipulanwar.restful.model.ImportContactResponse;
+import msyaipulanwar.restful.model.PagingResponse;
+import msyaipulanwar.restful.model.PatchContactRequest;
+import msyaipulanwar.restful.model.SearchContactRequest;
 import msyaipulanwar.restful.model.UpdateContactRequest;
 import msyaipulanwar.restful.model.WebResponse;
+import msyaipulanwar.restful.service.ContactChangeService;
+import msyaipulanwar.restful.service.ContactExportService;
+import msyaipulanwar.restful.service.ContactImportService;
 import msyaipulanwar.restful.service.ContactService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.IOException;
+import java.util.List;
 
 @RestController
+@Profile("!reactive")
 public class ContactController {
+    private static final String ADDRESSES = "addresses";
+
     private final ContactService contactService;
 
-    public ContactController(ContactService contactService) {
+    private final ContactExportService contactExportService;
+
+    private final ContactImportService contactImportService;
+
+    private final ContactChangeService contactChangeService;
+
+    public ContactController(ContactService contactService, ContactExportService contactExportService,
+                             ContactImportService contactImportService, ContactChangeService contactChangeService) {
         this.contactService = contactService;
+        this.contactExportService = contactExportService;
+        this.contactImportService = contactImportService;
+        this.contactChangeService = contactChangeService;
     }
 
 
     @PostMapping(
             path = "/api/contacts",
-            consumes = MediaType.APPLICATION_JSON_VALUE,
-            produces = MediaType.APPLICATION_JSON_VALUE
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE}
     )
     public WebResponse<ContactResponse> create (User user, @RequestBody CreateContactRequest request) {
         ContactResponse contactResponse = contactService.create(user, request);
         return WebResponse.<ContactResponse>builder().data(contactResponse).build();
     }
 
+    @PostMapping(
+            path = "/api/contacts/bulk",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE}
+    )
+    public WebResponse<List<WebResponse<ContactResponse>>> createBulk (User user, @RequestBody List<CreateContactRequest> request) {
+        List<WebResponse<ContactResponse>> results = contactService.createBulk(user, request);
+        return WebResponse.<List<WebResponse<ContactResponse>>>builder().data(results).build();
+    }
+
     @GetMapping(
             path = "/api/contacts/{contactId}",
-            produces = MediaType.APPLICATION_JSON_VALUE
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE}
     )
-    public WebResponse<ContactResponse> get (User user, @PathVariable("contactId") String id) {
+    public ResponseEntity<WebResponse<ContactResponse>> get (User user, @PathVariable("contactId") String id,
+                                                             @RequestParam(value = "include", required = false) String include,
+                                                             @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                             WebRequest webRequest, HttpServletResponse response) {
+        // on the raw response so that a 304 carries it too
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        if (ADDRESSES.equals(include)) {
+            // no ETag: address writes do not change the contact version, so it would not
+            // tell two different bodies apart
+            ContactResponse contactResponse = contactService.getWithAddresses(user, id);
+            return ResponseEntity.ok()
+                    .body(WebResponse.<ContactResponse>builder().data(contactResponse).build());
+        }
+
+        if (webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                && webRequest.checkNotModified(ETags.of(contactService.getVersion(user, id), accept))) {
+            return null;
+        }
+
         ContactResponse contactResponse = contactService.get(user, id);
-        return WebResponse.<ContactResponse>builder().data(contactResponse).build();
+        return ResponseEntity.ok()
+                .eTag(ETags.of(contactResponse.getVersion(), accept))
+                .body(WebResponse.<ContactResponse>builder().data(contactResponse).build());
     }
 
     @PutMapping(
             path = "/api/contacts/{contactId}",
-            consumes = MediaType.APPLICATION_JSON_VALUE,
-            produces = MediaType.APPLICATION_JSON_VALUE
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE}
     )
     public WebResponse<ContactResponse> update (User user,
                                                 @RequestBody UpdateContactRequest request,
@@ -50,14 +112,111 @@ public class ContactController {
         return WebResponse.<ContactResponse>builder().data(contactResponse).build();
     }
 
+    @PatchMapping(
+            path = "/api/contacts/{contactId}",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE}
+    )
+    public ResponseEntity<WebResponse<ContactResponse>> patch (User user,
+                                                               @RequestBody PatchContactRequest request,
+                                                               @PathVariable("contactId") String id,
+                                                               @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                               @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        request.setId(id);
+        request.setVersion(ETags.ifMatch(ifMatch));
+        ContactResponse contactResponse = contactService.patch(user, request);
+        return ResponseEntity.ok()
+                .eTag(ETags.of(contactResponse.getVersion(), accept))
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(WebResponse.<ContactResponse>builder().data(contactResponse).build());
+    }
+
     @DeleteMapping(
             path = "/api/contacts/{contactId}",
-            consumes = MediaType.APPLICATION_JSON_VALUE,
-            produces = MediaType.APPLICATION_JSON_VALUE
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE}
     )
     public WebResponse<String> update (User user,
                                                 @PathVariable("contactId") String id) {
         contactService.delete(user, id);
         return WebResponse.<String>builder().data("Ok").build();
     }
+
+    @GetMapping(
+            path = "/api/contacts",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE}
+    )
+    public WebResponse<List<ContactResponse>> search (User user,
+                                                      @RequestParam(value = "name", required = false) String name,
+                                                      @RequestParam(value = "email", required = false) String email,
+                                                      @RequestParam(value = "phone", required = false) String phone,
+                                                      @RequestParam(value = "after", required = false) String after,
+                                                      @RequestParam(value = "size", required = false, defaultValue = "10") Integer size,
+                                                      @RequestParam(value = "include", required = false) String include) {
+        SearchContactRequest request = SearchContactRequest.builder()
+                .name(name)
+                .email(email)
+                .phone(phone)
+                .after(after)
+                .size(size)
+                .includeAddresses(ADDRESSES.equals(include))
+                .build();
+
+        CursorPage<ContactResponse> contacts = contactService.search(user, request);
+        return WebResponse.<List<ContactResponse>>builder()
+                .data(contacts.getData())
+                .paging(PagingResponse.builder()
+                        .size(size)
+                        .next(contacts.getNext())
+                        .build())
+                .build();
+    }
+
+    /**
+     * Changes since the cursor, oldest first. Clients keep calling with paging.next until a
+     * page comes back with fewer than {@code size} changes, and store the last cursor for
+     * the next sync. Without {@code since} the feed starts from the beginning.
+     */
+    @GetMapping(
+            path = "/api/contacts/changes",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE}
+    )
+    public WebResponse<List<ContactChangeResponse>> changes (User user,
+                                                             @RequestParam(value = "since", required = false) String since,
+                                                             @RequestParam(value = "size", required = false, defaultValue = "100") Integer size) {
+        ContactChangesRequest request = ContactChangesRequest.builder()
+                .since(since)
+                .size(size)
+                .build();
+
+        CursorPage<ContactChangeResponse> changes = contactChangeService.changes(user, request);
+        return WebResponse.<List<ContactChangeResponse>>builder()
+                .data(changes.getData())
+                .paging(PagingResponse.builder()
+                        .size(size)
+                        .next(changes.getNext())
+                        .build())
+                .build();
+    }
+
+    @GetMapping(
+            path = "/api/contacts/export"
+    )
+    public void export (User user,
+                        @RequestParam(value = "format", required = false, defaultValue = ContactExportService.NDJSON) String format,
+                        HttpServletResponse response) throws IOException {
+        response.setContentType(contactExportService.contentType(format));
+        response.setCharacterEncoding("UTF-8");
+        contactExportService.export(user, format, response.getOutputStream());
+    }
+
+    @PostMapping(
+            path = "/api/contacts/import",
+            consumes = "text/csv",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE}
+    )
+    public WebResponse<ImportContactResponse> importContacts (User user, HttpServletRequest request) throws IOException {
+        ImportContactResponse response = contactImportService.importCsv(user, request.getInputStream());
+        return WebResponse.<ImportContactResponse>builder().data(response).build();
+    }
 }
@@ -0,0 +1,84 @@
+package msyaipulanwar.restful.controller;
+
+import msyaipulanwar.restful.exception.ApiError;
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Contact ETags, the row version as a strong entity tag. The JSON and CBOR representations
+ * have different bytes, so the CBOR tag carries a {@code -cbor} suffix; responses that
+ * depend on it send {@code Vary: Accept}. Shared by the servlet and the reactive contact
+ * controllers.
+ */
+final class ETags {
+    private static final String CBOR_SUFFIX = "-cbor";
+
+    private ETags() {
+    }
+
+    /**
+     * @param accept the request's Accept header, the tag is the one of the representation
+     *               it selects
+     */
+    static String of(Long version, String accept) {
+        return "\"" + version + (prefersCbor(accept) ? CBOR_SUFFIX : "") + "\"";
+    }
+
+    /**
+     * If-Match compares strongly (RFC 9110 13.1.1), so a weak tag never matches and fails
+     * the precondition like a stale version does. Only a single tag or "*" is understood.
+     * The tag of either representation matches, both name the same version.
+     * @return the version in an If-Match value, null for "*" or no header
+     */
+    static Long ifMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String value = ifMatch.trim();
+        if (value.length() < 3 || value.charAt(0) != '"' || value.charAt(value.length() - 1) != '"') {
+            throw ApiError.CONTACT_MODIFIED.exception();
+        }
+        value = value.substring(1, value.length() - 1);
+        if (value.endsWith(CBOR_SUFFIX)) {
+            value = value.substring(0, value.length() - CBOR_SUFFIX.length());
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw ApiError.CONTACT_MODIFIED.exception();
+        }
+    }
+
+    /**
+     * The choice the message converters make between the two produced types: acceptable
+     * types by quality and specificity, the first one compatible wins, and a wildcard is
+     * JSON.
+     */
+    private static boolean prefersCbor(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return false;
+        }
+        List<MediaType> mediaTypes;
+        try {
+            mediaTypes = new ArrayList<>(MediaType.parseMediaTypes(accept));
+            MimeTypeUtils.sortBySpecificity(mediaTypes);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        for (MediaType mediaType : mediaTypes) {
+            if (mediaType.getQualityValue() == 0) {
+                continue;
+            }
+            if (mediaType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return false;
+            }
+            if (mediaType.isCompatibleWith(MediaType.APPLICATION_CBOR)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
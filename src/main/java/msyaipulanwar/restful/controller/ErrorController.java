@@ -1,24 +1,100 @@
 package msyaipulanwar.restful.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import jakarta.validation.ConstraintViolationException;
+import msyaipulanwar.restful.exception.ApiError;
+import msyaipulanwar.restful.exception.ApiException;
 import msyaipulanwar.restful.model.WebResponse;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The {@link ApiError} bodies are serialized to JSON and CBOR once and written as bytes, so a
+ * flood of 401s or 404s costs no serialization. The body is the same WebResponse the other
+ * handlers build. Accept headers asking for neither format go through the regular path.
+ */
 @RestControllerAdvice
 public class ErrorController {
+    private final Map<ApiError, byte[]> jsonBodies = new EnumMap<>(ApiError.class);
+
+    private final Map<ApiError, byte[]> cborBodies = new EnumMap<>(ApiError.class);
+
+    public ErrorController(Jackson2ObjectMapperBuilder builder) throws JsonProcessingException {
+        ObjectMapper json = builder.build();
+        ObjectMapper cbor = builder.factory(new CBORFactory()).build();
+        for (ApiError error : ApiError.values()) {
+            WebResponse<String> body = WebResponse.<String>builder().errors(error.getReason()).build();
+            jsonBodies.put(error, json.writeValueAsBytes(body));
+            cborBodies.put(error, cbor.writeValueAsBytes(body));
+        }
+    }
+
     @ExceptionHandler(ConstraintViolationException.class)
     public ResponseEntity<WebResponse<String>> constraintViolationException(ConstraintViolationException exception){
         return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                 .body(WebResponse.<String>builder().errors(exception.getMessage()).build());
     }
 
+    @ExceptionHandler(ApiException.class)
+    public ResponseEntity<?> apiError(ApiException exception,
+                                      @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept){
+        MediaType mediaType = negotiate(accept);
+        if (mediaType == null) {
+            return apiException(exception);
+        }
+        byte[] body = (MediaType.APPLICATION_CBOR.equals(mediaType) ? cborBodies : jsonBodies).get(exception.getError());
+        return ResponseEntity.status(exception.getStatusCode())
+                .contentType(mediaType)
+                .contentLength(body.length)
+                .body(body);
+    }
+
     @ExceptionHandler(ResponseStatusException.class)
     public ResponseEntity<WebResponse<String>> apiException(ResponseStatusException exception){
         return ResponseEntity.status(exception.getStatusCode())
                 .body(WebResponse.<String>builder().errors(exception.getReason()).build());
     }
+
+    /**
+     * JSON or CBOR, whichever the client accepts with the higher quality, JSON on a tie.
+     * @return null when neither is acceptable or the header does not parse
+     */
+    static MediaType negotiate(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return MediaType.APPLICATION_JSON;
+        }
+        MediaType selected = null;
+        double quality = 0;
+        try {
+            for (MediaType candidate : MediaType.parseMediaTypes(accept)) {
+                double candidateQuality = candidate.getQualityValue();
+                if (candidateQuality <= quality) {
+                    continue;
+                }
+                if (candidate.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                    selected = MediaType.APPLICATION_JSON;
+                    quality = candidateQuality;
+                } else if (candidate.isCompatibleWith(MediaType.APPLICATION_CBOR)) {
+                    selected = MediaType.APPLICATION_CBOR;
+                    quality = candidateQuality;
+                }
+            }
+        } catch (InvalidMediaTypeException e) {
+            return null;
+        }
+        return selected;
+    }
 }
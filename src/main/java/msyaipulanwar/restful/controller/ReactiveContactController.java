@@ -0,0 +1,251 @@
+package msyaipulanwar.restful.controller;
+
+import msyaipulanwar.restful.entity.User;
+import msyaipulanwar.restful.model.ContactChangeResponse;
+import msyaipulanwar.restful.model.ContactChangesRequest;
+import msyaipulanwar.restful.model.ContactResponse;
+import msyaipulanwar.restful.model.CreateContactRequest;
+import msyaipulanwar.restful.model.CursorPage;
+import msyaipulanwar.restful.model.ImportContactResponse;
+import msyaipulanwar.restful.model.PagingResponse;
+import msyaipulanwar.restful.model.PatchContactRequest;
+import msyaipulanwar.restful.model.SearchContactRequest;
+import msyaipulanwar.restful.model.UpdateContactRequest;
+import msyaipulanwar.restful.model.WebResponse;
+import msyaipulanwar.restful.service.ContactChangeService;
+import msyaipulanwar.restful.service.ContactExportService;
+import msyaipulanwar.restful.service.ContactImportService;
+import msyaipulanwar.restful.service.ContactService;
+import msyaipulanwar.restful.service.ReactiveContactService;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * The contact API of {@link ContactController} on WebFlux, active with the reactive profile.
+ * Handlers return without holding a thread while the database works. Bodies, headers and
+ * status codes are the same. The bulk, change feed, export and import endpoints call the
+ * JPA services like the servlet controller; their handlers run on the blocking executor
+ * (see ReactiveWebConfiguration), export and import stream through it.
+ */
+@RestController
+@Profile("reactive")
+public class ReactiveContactController {
+    private static final String ADDRESSES = "addresses";
+
+    private final ReactiveContactService contactService;
+
+    private final ContactService blockingContactService;
+
+    private final ContactChangeService contactChangeService;
+
+    private final ContactExportService contactExportService;
+
+    private final ContactImportService contactImportService;
+
+    private final AsyncTaskExecutor blockingExecutor;
+
+    public ReactiveContactController(ReactiveContactService contactService, ContactService blockingContactService,
+                                     ContactChangeService contactChangeService, ContactExportService contactExportService,
+                                     ContactImportService contactImportService,
+                                     @Qualifier("applicationTaskExecutor") AsyncTaskExecutor blockingExecutor) {
+        this.contactService = contactService;
+        this.blockingContactService = blockingContactService;
+        this.contactChangeService = contactChangeService;
+        this.contactExportService = contactExportService;
+        this.contactImportService = contactImportService;
+        this.blockingExecutor = blockingExecutor;
+    }
+
+    @PostMapping(
+            path = "/api/contacts",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE}
+    )
+    public Mono<WebResponse<ContactResponse>> create (User user, @RequestBody CreateContactRequest request) {
+        return contactService.create(user, request)
+                .map(contactResponse -> WebResponse.<ContactResponse>builder().data(contactResponse).build());
+    }
+
+    @PostMapping(
+            path = "/api/contacts/bulk",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE}
+    )
+    public WebResponse<List<WebResponse<ContactResponse>>> createBulk (User user, @RequestBody List<CreateContactRequest> request) {
+        List<WebResponse<ContactResponse>> responses = blockingContactService.createBulk(user, request);
+        return WebResponse.<List<WebResponse<ContactResponse>>>builder().data(responses).build();
+    }
+
+    @GetMapping(
+            path = "/api/contacts/{contactId}",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE}
+    )
+    public Mono<ResponseEntity<WebResponse<ContactResponse>>> get (User user, @PathVariable("contactId") String id,
+                                                                   @RequestParam(value = "include", required = false) String include,
+                                                                   @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                                   ServerWebExchange exchange) {
+        // on the raw response so that a 304 carries it too
+        exchange.getResponse().getHeaders().setVary(List.of(HttpHeaders.ACCEPT));
+        if (ADDRESSES.equals(include)) {
+            // no ETag, as in ContactController
+            return contactService.getWithAddresses(user, id).map(contactResponse -> ResponseEntity.ok()
+                    .body(WebResponse.<ContactResponse>builder().data(contactResponse).build()));
+        }
+
+        if (exchange.getRequest().getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH) != null) {
+            return contactService.getVersion(user, id).flatMap(version -> exchange.checkNotModified(ETags.of(version, accept))
+                    ? Mono.<ResponseEntity<WebResponse<ContactResponse>>>empty()
+                    : contactService.get(user, id).map(contactResponse -> withETag(contactResponse, accept)));
+        }
+
+        return contactService.get(user, id).map(contactResponse -> withETag(contactResponse, accept));
+    }
+
+    private ResponseEntity<WebResponse<ContactResponse>> withETag(ContactResponse contactResponse, String accept) {
+        return ResponseEntity.ok()
+                .eTag(ETags.of(contactResponse.getVersion(), accept))
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(WebResponse.<ContactResponse>builder().data(contactResponse).build());
+    }
+
+    @PutMapping(
+            path = "/api/contacts/{contactId}",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE}
+    )
+    public Mono<WebResponse<ContactResponse>> update (User user,
+                                                      @RequestBody UpdateContactRequest request,
+                                                      @PathVariable("contactId") String id) {
+        request.setId(id);
+        return contactService.update(user, request)
+                .map(contactResponse -> WebResponse.<ContactResponse>builder().data(contactResponse).build());
+    }
+
+    @PatchMapping(
+            path = "/api/contacts/{contactId}",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE}
+    )
+    public Mono<ResponseEntity<WebResponse<ContactResponse>>> patch (User user,
+                                                                     @RequestBody PatchContactRequest request,
+                                                                     @PathVariable("contactId") String id,
+                                                                     @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                                     @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        request.setId(id);
+        request.setVersion(ETags.ifMatch(ifMatch));
+        return contactService.patch(user, request).map(contactResponse -> withETag(contactResponse, accept));
+    }
+
+    @DeleteMapping(
+            path = "/api/contacts/{contactId}",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE}
+    )
+    public Mono<WebResponse<String>> delete (User user,
+                                             @PathVariable("contactId") String id) {
+        return contactService.delete(user, id)
+                .then(Mono.fromSupplier(() -> WebResponse.<String>builder().data("Ok").build()));
+    }
+
+    @GetMapping(
+            path = "/api/contacts",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE}
+    )
+    public Mono<WebResponse<List<ContactResponse>>> search (User user,
+                                                            @RequestParam(value = "name", required = false) String name,
+                                                            @RequestParam(value = "email", required = false) String email,
+                                                            @RequestParam(value = "phone", required = false) String phone,
+                                                            @RequestParam(value = "after", required = false) String after,
+                                                            @RequestParam(value = "size", required = false, defaultValue = "10") Integer size,
+                                                            @RequestParam(value = "include", required = false) String include) {
+        SearchContactRequest request = SearchContactRequest.builder()
+                .name(name)
+                .email(email)
+                .phone(phone)
+                .after(after)
+                .size(size)
+                .includeAddresses(ADDRESSES.equals(include))
+                .build();
+
+        return contactService.search(user, request).map(contacts -> WebResponse.<List<ContactResponse>>builder()
+                .data(contacts.getData())
+                .paging(PagingResponse.builder()
+                        .size(size)
+                        .next(contacts.getNext())
+                        .build())
+                .build());
+    }
+
+    @GetMapping(
+            path = "/api/contacts/changes",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE}
+    )
+    public WebResponse<List<ContactChangeResponse>> changes (User user,
+                                                             @RequestParam(value = "since", required = false) String since,
+                                                             @RequestParam(value = "size", required = false, defaultValue = "100") Integer size) {
+        ContactChangesRequest request = ContactChangesRequest.builder()
+                .since(since)
+                .size(size)
+                .build();
+
+        CursorPage<ContactChangeResponse> changes = contactChangeService.changes(user, request);
+        return WebResponse.<List<ContactChangeResponse>>builder()
+                .data(changes.getData())
+                .paging(PagingResponse.builder()
+                        .size(size)
+                        .next(changes.getNext())
+                        .build())
+                .build();
+    }
+
+    /**
+     * The export writes to an output stream on the blocking executor, each flushed chunk is
+     * sent as it comes.
+     */
+    @GetMapping(
+            path = "/api/contacts/export"
+    )
+    public ResponseEntity<Flux<DataBuffer>> export (User user,
+                                                    @RequestParam(value = "format", required = false, defaultValue = ContactExportService.NDJSON) String format,
+                                                    ServerWebExchange exchange) {
+        MediaType contentType = new MediaType(MediaType.parseMediaType(contactExportService.contentType(format)),
+                StandardCharsets.UTF_8);
+        Flux<DataBuffer> body = Flux.from(DataBufferUtils.outputStreamPublisher(out -> {
+            try {
+                contactExportService.export(user, format, out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, exchange.getResponse().bufferFactory(), blockingExecutor));
+        return ResponseEntity.ok().contentType(contentType).body(body);
+    }
+
+    @PostMapping(
+            path = "/api/contacts/import",
+            consumes = "text/csv",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE}
+    )
+    public WebResponse<ImportContactResponse> importContacts (User user, @RequestBody Flux<DataBuffer> body) throws IOException {
+        // read as it arrives, the handler is on the blocking executor
+        try (InputStream in = DataBufferUtils.subscriberInputStream(body, 16)) {
+            ImportContactResponse response = contactImportService.importCsv(user, in);
+            return WebResponse.<ImportContactResponse>builder().data(response).build();
+        }
+    }
+}
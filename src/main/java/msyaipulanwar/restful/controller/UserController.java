@@ -19,8 +19,8 @@ public class UserController {
 
     @PostMapping(
             path = "/api/users",
-            consumes = MediaType.APPLICATION_JSON_VALUE,
-            produces = MediaType.APPLICATION_JSON_VALUE
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE}
     )
     public WebResponse<String> register(@RequestBody RegisterUserRequest request){
         userService.register(request);
@@ -29,7 +29,7 @@ public class UserController {
 
     @GetMapping(
             path = "api/users/current",
-            produces = MediaType.APPLICATION_JSON_VALUE
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE}
     )
     public WebResponse<UserResponse> get(User user){
         UserResponse response = userService.get(user);
@@ -38,8 +38,8 @@ public class UserController {
 
     @PatchMapping(
             path = "api/users/current",
-            consumes = MediaType.APPLICATION_JSON_VALUE,
-            produces = MediaType.APPLICATION_JSON_VALUE
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE}
     )
     public WebResponse<UserResponse> update(User user, @RequestBody UpdateUserRequest request){
         UserResponse response = userService.update(user, request);
@@ -0,0 +1,37 @@
+package msyaipulanwar.restful.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Sends connections for read-only transactions to the replica and everything else to the
+ * primary. The route is decided when a connection is acquired, so this must sit behind a
+ * LazyConnectionDataSourceProxy: the JPA transaction manager only marks the transaction
+ * read-only after it asked for the connection.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+    enum Route {
+        PRIMARY, REPLICA
+    }
+
+    private final ReadYourWrites readYourWrites;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, ReadYourWrites readYourWrites) {
+        this.readYourWrites = readYourWrites;
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            readYourWrites.recordWriteOnCommit();
+            return Route.PRIMARY;
+        }
+        return readYourWrites.isWithinWindow() ? Route.PRIMARY : Route.REPLICA;
+    }
+}
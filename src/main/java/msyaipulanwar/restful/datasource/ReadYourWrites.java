@@ -0,0 +1,62 @@
+package msyaipulanwar.restful.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.time.Duration;
+
+/**
+ * Remembers which users committed a write in the last {@code window}, so their read-only
+ * transactions keep using the primary until the replica has caught up. The current user
+ * is the one bound to the request by the argument resolver. State is per instance.
+ */
+@Component
+public class ReadYourWrites {
+    public static final String USERNAME_ATTRIBUTE = ReadYourWrites.class.getName() + ".username";
+
+    private final Cache<String, Boolean> recentWriters;
+
+    public ReadYourWrites(@Value("${app.datasource.read-your-writes-window:5s}") Duration window,
+                          @Value("${app.datasource.read-your-writes-maximum-size:100000}") long maximumSize) {
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(window)
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    /**
+     * @return true if the current user wrote within the window
+     */
+    public boolean isWithinWindow() {
+        String username = currentUsername();
+        return username != null && recentWriters.getIfPresent(username) != null;
+    }
+
+    /**
+     * Starts the current user's window once the surrounding transaction commits.
+     */
+    public void recordWriteOnCommit() {
+        String username = currentUsername();
+        if (username == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                recentWriters.put(username, Boolean.TRUE);
+            }
+        });
+    }
+
+    private static String currentUsername() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes == null ? null
+                : (String) attributes.getAttribute(USERNAME_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+    }
+}
@@ -1,20 +1,24 @@
 package msyaipulanwar.restful.entity;
 
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+import java.util.UUID;
 
 
 //CREATE TABLE addresses (
-//        id varchar(100) NOT NULL,
+//        id binary(16) NOT NULL,
 //street varchar(255),
 //city varchar(100),
 //province varchar(100),
 //country varchar(100) not null,
 //postal_code varchar(10) not null,
-//contact_id varchar(100) NOT NULL,
+//contact_id binary(16) NOT NULL,
 //PRIMARY KEY (id),
 //FOREIGN KEY fk_contacts_addresses(contact_id) REFERENCES contacts (id)
 //        )
@@ -26,9 +30,9 @@ import lombok.Setter;
 @NoArgsConstructor
 @Entity
 @Table(name = "addresses")
-public class Address {
+public class Address implements Persistable<UUID> {
     @Id
-    private String id;
+    private UUID id;
     private String street;
     private String city;
     private String province;
@@ -36,7 +40,26 @@ public class Address {
     @Column(name = "postal_code")
     private String postalCode;
 
-    @ManyToOne
-    @JoinColumn(name = "contact_id", referencedColumnName = "id")
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "contact_id", referencedColumnName = "id", foreignKey = @ForeignKey(name = "fk_contacts_addresses"))
     private Contact contact;
+
+    /**
+     * Same as {@link Contact}: ids are assigned, so newness is tracked explicitly.
+     */
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean persisted;
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
 }
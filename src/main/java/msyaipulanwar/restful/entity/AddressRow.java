@@ -0,0 +1,38 @@
+package msyaipulanwar.restful.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.util.UUID;
+
+/**
+ * Read-only R2DBC mapping of the addresses table for the reactive profile.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Table("addresses")
+public class AddressRow {
+    @Id
+    private UUID id;
+
+    private String street;
+
+    private String city;
+
+    private String province;
+
+    private String country;
+
+    @Column("postal_code")
+    private String postalCode;
+
+    @Column("contact_id")
+    private UUID contactId;
+}
@@ -1,22 +1,36 @@
 package msyaipulanwar.restful.entity;
 
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
+import org.springframework.data.domain.Persistable;
 
 import java.util.List;
+import java.util.UUID;
 
 @Getter
 @Setter
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "contacts")
-public class Contact {
+@Table(name = "contacts", indexes = {
+        @Index(name = "idx_contacts_username_id", columnList = "username, id"),
+        @Index(name = "idx_contacts_username_first_name", columnList = "username, first_name, id"),
+        @Index(name = "idx_contacts_username_last_name", columnList = "username, last_name, id"),
+        @Index(name = "idx_contacts_username_email", columnList = "username, email, id"),
+        @Index(name = "idx_contacts_username_phone", columnList = "username, phone, id"),
+        @Index(name = "idx_contacts_username_change_seq", columnList = "username, change_seq, id")
+})
+public class Contact implements Persistable<UUID> {
+    /**
+     * {@link Uuids#timeOrdered()} stored as BINARY(16).
+     */
     @Id
-    private String id;
+    private UUID id;
 
     @Column(name = "first_name")
     private String firstName;
@@ -28,10 +42,75 @@ public class Contact {
 
     private String email;
 
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Long createdAt;
+
+    /**
+     * Epoch millis of the last change. Bulk updates in ContactRepository set it explicitly.
+     */
+    @Column(name = "updated_at", nullable = false)
+    private Long updatedAt;
+
+    /**
+     * {@link msyaipulanwar.restful.repository.ContactChangeSequenceRepository#next} of the
+     * last writing transaction, the change feed is ordered by (change_seq, id). Rows saved
+     * without one, like test fixtures, get 0 and only show up in a sync from the start.
+     */
+    @Column(name = "change_seq", nullable = false)
+    private Long changeSeq;
+
     @ManyToOne
     @JoinColumn(name = "username", referencedColumnName = "username")
     private User user;
 
+    /**
+     * Lazy; when touched on a page of contacts the collections are initialized together
+     * with one {@code IN} query per 100 contacts instead of one query per contact.
+     */
+    @BatchSize(size = 100)
     @OneToMany(mappedBy = "contact")
     private List<Address> addresses;
+
+    /**
+     * Ids are assigned before save, so Spring Data cannot tell new rows from the id. Without
+     * this every save would merge (SELECT then INSERT) and inserts could not be batched.
+     */
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean persisted;
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
+
+    @PrePersist
+    void stampCreated() {
+        long now = System.currentTimeMillis();
+        if (createdAt == null) {
+            createdAt = now;
+        }
+        if (updatedAt == null) {
+            updatedAt = createdAt;
+        }
+        if (changeSeq == null) {
+            changeSeq = 0L;
+        }
+    }
+
+    @PreUpdate
+    void stampUpdated() {
+        updatedAt = System.currentTimeMillis();
+    }
 }
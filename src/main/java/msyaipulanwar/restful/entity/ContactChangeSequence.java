@@ -0,0 +1,28 @@
+package msyaipulanwar.restful.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Per user counter the change feed is ordered by. Rows are only written through
+ * {@link msyaipulanwar.restful.repository.ContactChangeSequenceRepository#next}.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "contact_change_sequences")
+public class ContactChangeSequence {
+    @Id
+    private String username;
+
+    @Column(name = "last_seq", nullable = false)
+    private Long lastSeq;
+}
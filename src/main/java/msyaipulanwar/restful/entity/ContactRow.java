@@ -0,0 +1,75 @@
+package msyaipulanwar.restful.entity;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.domain.Persistable;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.util.UUID;
+
+/**
+ * R2DBC mapping of the contacts table for the reactive profile, see {@link Contact} for the
+ * JPA one. The owner is the plain username column.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Table("contacts")
+public class ContactRow implements Persistable<UUID> {
+    @Id
+    private UUID id;
+
+    @Column("first_name")
+    private String firstName;
+
+    @Column("last_name")
+    private String lastName;
+
+    private String phone;
+
+    private String email;
+
+    private Long version;
+
+    @Column("created_at")
+    private Long createdAt;
+
+    @Column("updated_at")
+    private Long updatedAt;
+
+    @Column("change_seq")
+    private Long changeSeq;
+
+    private String username;
+
+    /**
+     * Same reason as in {@link Contact}: ids are assigned, so only rows built for insert are
+     * new. Rows read from the database never are.
+     */
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean inserting;
+
+    @Override
+    public boolean isNew() {
+        return inserting;
+    }
+
+    public static ContactRow forInsert(UUID id, String username, long now, long changeSeq) {
+        ContactRow row = new ContactRow();
+        row.setId(id);
+        row.setUsername(username);
+        row.setVersion(0L);
+        row.setCreatedAt(now);
+        row.setUpdatedAt(now);
+        row.setChangeSeq(changeSeq);
+        row.inserting = true;
+        return row;
+    }
+}
@@ -0,0 +1,62 @@
+package msyaipulanwar.restful.entity;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+import java.util.UUID;
+
+/**
+ * Marker left behind by a deleted contact so the change feed can report the delete. The
+ * username is a plain column: tombstones outlive the contact row and do not need the user
+ * row either.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "contact_tombstones", indexes = {
+        @Index(name = "idx_contact_tombstones_username_change_seq", columnList = "username, change_seq, id"),
+        @Index(name = "idx_contact_tombstones_deleted_at", columnList = "deleted_at")
+})
+public class ContactTombstone implements Persistable<UUID> {
+    @Id
+    private UUID id;
+
+    @Column(nullable = false)
+    private String username;
+
+    @Column(name = "deleted_at", nullable = false)
+    private Long deletedAt;
+
+    @Column(name = "change_seq", nullable = false)
+    private Long changeSeq;
+
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean persisted;
+
+    public ContactTombstone(UUID id, String username, Long deletedAt, Long changeSeq) {
+        this.id = id;
+        this.username = username;
+        this.deletedAt = deletedAt;
+        this.changeSeq = changeSeq;
+    }
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
+}
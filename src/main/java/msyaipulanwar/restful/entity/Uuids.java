@@ -0,0 +1,70 @@
+package msyaipulanwar.restful.entity;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Identifiers for contacts and addresses. New ids are UUIDv7 (RFC 9562): 48 bits of unix
+ * milliseconds, a 12 bit sequence and 62 random bits, stored as {@code BINARY(16)}. The
+ * byte order follows creation time, so inserts append to the right edge of the clustered
+ * index instead of splitting random pages. Clients only ever see the canonical string form.
+ */
+public final class Uuids {
+    private static final int SEQUENCE_BITS = 12;
+
+    /**
+     * Last issued {@code millis << 12 | sequence}. When 4096 ids are issued within one
+     * millisecond the sequence overflows into the timestamp, which keeps ids strictly
+     * increasing within this JVM.
+     */
+    private static final AtomicLong LAST = new AtomicLong();
+
+    private static final int CANONICAL_LENGTH = 36;
+
+    private Uuids() {
+    }
+
+    public static UUID timeOrdered() {
+        long now = System.currentTimeMillis() << SEQUENCE_BITS;
+        long clock = LAST.updateAndGet(last -> now > last ? now : last + 1);
+
+        long msb = (clock >>> SEQUENCE_BITS) << 16
+                | 0x7000L
+                | (clock & 0xfffL);
+        long lsb = ThreadLocalRandom.current().nextLong() & 0x3fffffffffffffffL
+                | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+
+    /**
+     * @return the id for a canonical 36 character string, empty for anything else
+     */
+    public static Optional<UUID> parse(String value) {
+        if (value == null || value.length() != CANONICAL_LENGTH) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(UUID.fromString(value));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @return the 16 bytes stored in the BINARY(16) column, most significant first
+     */
+    public static byte[] toBytes(UUID id) {
+        return ByteBuffer.allocate(16)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .array();
+    }
+
+    public static UUID fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
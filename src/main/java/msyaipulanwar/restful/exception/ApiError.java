@@ -0,0 +1,37 @@
+package msyaipulanwar.restful.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * The errors that unauthenticated, scanning or conflicting traffic hits over and over. Their
+ * bodies never change, so ErrorController serializes them once at startup.
+ */
+public enum ApiError {
+    UNAUTHORIZED(HttpStatus.UNAUTHORIZED, "Unauthorized"),
+    LOGIN_FAILED(HttpStatus.UNAUTHORIZED, "Username or Password Wrong"),
+    CONTACT_NOT_FOUND(HttpStatus.NOT_FOUND, "Contact not found"),
+    ADDRESS_NOT_FOUND(HttpStatus.NOT_FOUND, "Address not found"),
+    CONTACT_MODIFIED(HttpStatus.PRECONDITION_FAILED, "Contact was modified"),
+    SERVER_BUSY(HttpStatus.SERVICE_UNAVAILABLE, "Server busy, try again later");
+
+    private final HttpStatus status;
+
+    private final String reason;
+
+    ApiError(HttpStatus status, String reason) {
+        this.status = status;
+        this.reason = reason;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public ApiException exception() {
+        return new ApiException(this);
+    }
+}
@@ -0,0 +1,30 @@
+package msyaipulanwar.restful.exception;
+
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * A {@link ResponseStatusException} for one of the {@link ApiError}s that skips the stack
+ * trace. These are expected outcomes, not bugs, and walking the stack is most of the cost of
+ * throwing. Still a ResponseStatusException, so existing handlers and the batch endpoint treat
+ * it like any other.
+ * <p>
+ * A new instance is thrown every time instead of a shared one, because the headers, the
+ * problem detail and the suppressed list are mutable.
+ */
+public class ApiException extends ResponseStatusException {
+    private final ApiError error;
+
+    public ApiException(ApiError error) {
+        super(error.getStatus(), error.getReason());
+        this.error = error;
+    }
+
+    public ApiError getError() {
+        return error;
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,28 @@
+package msyaipulanwar.restful.model;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One entry of a batch. {@code op} names the call, e.g. {@code contact.patch}; {@code id}
+ * is the contact id and {@code version} the If-Match value where the single request takes
+ * them from the URL and headers; {@code body} is the single request's JSON body.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BatchOperation {
+    @NotBlank
+    private String op;
+
+    private String id;
+
+    private Long version;
+
+    private JsonNode body;
+}
@@ -0,0 +1,36 @@
+package msyaipulanwar.restful.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BatchRequest {
+    /**
+     * {@code atomic} runs every operation in one transaction and stops at the first failure,
+     * {@code independent} commits every operation on its own and carries on.
+     */
+    @NotNull
+    @Builder.Default
+    private Mode mode = Mode.ATOMIC;
+
+    @NotNull
+    private List<@Valid @NotNull BatchOperation> operations;
+
+    public enum Mode {
+        @JsonProperty("atomic")
+        ATOMIC,
+
+        @JsonProperty("independent")
+        INDEPENDENT
+    }
+}
@@ -0,0 +1,25 @@
+package msyaipulanwar.restful.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ContactChangeResponse {
+    private String id;
+
+    private boolean deleted;
+
+    private Long updatedAt;
+
+    /**
+     * Current state of the contact, null for deletes.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private ContactResponse contact;
+}
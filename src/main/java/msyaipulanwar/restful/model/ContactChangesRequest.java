@@ -0,0 +1,22 @@
+package msyaipulanwar.restful.model;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ContactChangesRequest {
+    private String since;
+
+    @NotNull
+    @Min(1)
+    @Max(1000)
+    private Integer size;
+}
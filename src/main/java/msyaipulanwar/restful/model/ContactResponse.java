@@ -1,10 +1,15 @@
 package msyaipulanwar.restful.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+import java.util.UUID;
+
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -16,4 +21,22 @@ public class ContactResponse {
     private String phone;
     private String email;
 
+    /**
+     * Sent as the ETag header, not in the body.
+     */
+    @JsonIgnore
+    private Long version;
+
+    /**
+     * Only filled when addresses are requested.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<AddressResponse> addresses;
+
+    /**
+     * Used by the JPQL constructor expressions in ContactRepository.
+     */
+    public ContactResponse(UUID id, String firstName, String lastName, String phone, String email, Long version) {
+        this(id.toString(), firstName, lastName, phone, email, version, null);
+    }
 }
@@ -0,0 +1,22 @@
+package msyaipulanwar.restful.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One keyset page and the cursor to pass as {@code after} for the next one, null on the
+ * last page.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class CursorPage<T> {
+    private List<T> data;
+
+    private String next;
+}
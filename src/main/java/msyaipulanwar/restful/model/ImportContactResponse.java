@@ -0,0 +1,23 @@
+package msyaipulanwar.restful.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ImportContactResponse {
+    private Integer inserted;
+
+    private Integer rejected;
+
+    /**
+     * Details of the first rejected rows, "line n: reason".
+     */
+    private List<String> errors;
+}
@@ -0,0 +1,20 @@
+package msyaipulanwar.restful.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class PagingResponse {
+    private Integer size;
+
+    /**
+     * Cursor for the next page. Search returns null on the last page, the change feed
+     * always returns the cursor to resume from.
+     */
+    private String next;
+}
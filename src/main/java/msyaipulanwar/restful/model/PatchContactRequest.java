@@ -0,0 +1,45 @@
+package msyaipulanwar.restful.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Partial update, only non null fields are written. A null field and a missing field both
+ * keep the current value, so PATCH cannot clear a field; PUT the whole contact for that.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class PatchContactRequest {
+    @NotBlank
+    @JsonIgnore
+    private String id;
+
+    /**
+     * Expected version from If-Match, null to skip the check.
+     */
+    @JsonIgnore
+    private Long version;
+
+    @Pattern(regexp = "^(?!\\s*$).+")
+    private String firstName;
+
+    @Size(max = 100)
+    private String lastName;
+
+    @Size(max = 100)
+    @Pattern(regexp = "^(\\+62\\s?|0)(\\d{3,4}-?){2}\\d{3,4}$")
+    private String phone;
+
+    @Size(max = 100)
+    @Email
+    private String email;
+}
@@ -0,0 +1,30 @@
+package msyaipulanwar.restful.model;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class SearchContactRequest {
+    private String name;
+
+    private String email;
+
+    private String phone;
+
+    private String after;
+
+    @NotNull
+    @Min(1)
+    @Max(100)
+    private Integer size;
+
+    private boolean includeAddresses;
+}
@@ -1,5 +1,6 @@
 package msyaipulanwar.restful.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -13,4 +14,7 @@ public class WebResponse<T> {
     private T data;
 
     private String errors;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private PagingResponse paging;
 }
@@ -0,0 +1,21 @@
+package msyaipulanwar.restful.outbox;
+
+import msyaipulanwar.restful.model.ContactResponse;
+
+/**
+ * Body of contact.created and contact.updated events. Unlike the HTTP response it carries
+ * the row version and the change sequence of the writing transaction, so consumers can
+ * order events of the same contact and drop the ones they already applied.
+ */
+public record ContactEventPayload(String id,
+                                  String firstName,
+                                  String lastName,
+                                  String phone,
+                                  String email,
+                                  Long version,
+                                  long changeSeq) {
+    public static ContactEventPayload of(ContactResponse contact, long changeSeq) {
+        return new ContactEventPayload(contact.getId(), contact.getFirstName(), contact.getLastName(),
+                contact.getPhone(), contact.getEmail(), contact.getVersion(), changeSeq);
+    }
+}
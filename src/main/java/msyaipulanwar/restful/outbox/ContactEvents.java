@@ -0,0 +1,87 @@
+package msyaipulanwar.restful.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import msyaipulanwar.restful.entity.OutboxEvent;
+import msyaipulanwar.restful.entity.Uuids;
+import msyaipulanwar.restful.model.ContactResponse;
+import msyaipulanwar.restful.repository.OutboxEventRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Records contact events in the outbox. Must be called inside the transaction that makes
+ * the change, so the event is committed or rolled back together with it; publishing
+ * happens later in {@link OutboxDispatcher}.
+ */
+@Component
+public class ContactEvents {
+    public static final String CREATED = "contact.created";
+    public static final String UPDATED = "contact.updated";
+    public static final String DELETED = "contact.deleted";
+
+    private final OutboxEventRepository outboxEventRepository;
+
+    private final ObjectMapper objectMapper;
+
+    public ContactEvents(OutboxEventRepository outboxEventRepository, ObjectMapper objectMapper) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @param contact the row as stored, with its version
+     * @param changeSeq the change sequence the transaction stamped on the row
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void created(String username, ContactResponse contact, long changeSeq) {
+        outboxEventRepository.save(event(CREATED, username, UUID.fromString(contact.getId()),
+                ContactEventPayload.of(contact, changeSeq)));
+    }
+
+    /**
+     * One event per contact, inserted as a JDBC batch.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void createdAll(String username, List<ContactResponse> contacts, long changeSeq) {
+        List<OutboxEvent> events = new ArrayList<>(contacts.size());
+        for (ContactResponse contact : contacts) {
+            events.add(event(CREATED, username, UUID.fromString(contact.getId()),
+                    ContactEventPayload.of(contact, changeSeq)));
+        }
+        outboxEventRepository.saveAll(events);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void updated(String username, ContactResponse contact, long changeSeq) {
+        outboxEventRepository.save(event(UPDATED, username, UUID.fromString(contact.getId()),
+                ContactEventPayload.of(contact, changeSeq)));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void deleted(String username, UUID contactId, long changeSeq) {
+        outboxEventRepository.save(event(DELETED, username, contactId,
+                Map.of("id", contactId.toString(), "changeSeq", changeSeq)));
+    }
+
+    private OutboxEvent event(String type, String username, UUID aggregateId, Object payload) {
+        OutboxEvent event = new OutboxEvent();
+        event.setId(Uuids.timeOrdered());
+        event.setType(type);
+        event.setAggregateId(aggregateId);
+        event.setUsername(username);
+        event.setCreatedAt(System.currentTimeMillis());
+        try {
+            event.setPayload(objectMapper.writeValueAsString(payload));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize " + type + " event", e);
+        }
+        return event;
+    }
+}
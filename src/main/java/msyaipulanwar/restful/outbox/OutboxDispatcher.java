@@ -0,0 +1,94 @@
+package msyaipulanwar.restful.outbox;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import msyaipulanwar.restful.entity.OutboxEvent;
+import msyaipulanwar.restful.repository.OutboxEventRepository;
+import msyaipulanwar.restful.shard.ShardRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Drains the outbox in the background. Each batch is claimed, published and deleted in one
+ * transaction; when the sink fails the transaction rolls back and the batch is retried on
+ * the next poll. Published and failed event counts are exported as
+ * {@code outbox.events{result=published|failed}}. With sharding every shard's outbox is
+ * drained in turn.
+ */
+@Component
+public class OutboxDispatcher {
+    private static final Logger log = LoggerFactory.getLogger(OutboxDispatcher.class);
+
+    private final OutboxEventRepository outboxEventRepository;
+
+    private final OutboxSink sink;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int batchSize;
+
+    private final Counter published;
+
+    private final Counter failed;
+
+    private final ShardRouter shardRouter;
+
+    public OutboxDispatcher(OutboxEventRepository outboxEventRepository, OutboxSink sink,
+                            PlatformTransactionManager transactionManager, ShardRouter shardRouter,
+                            @Value("${app.outbox.batch-size:100}") int batchSize,
+                            MeterRegistry meterRegistry) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.sink = sink;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.published = Counter.builder("outbox.events").tag("result", "published").register(meterRegistry);
+        this.failed = Counter.builder("outbox.events").tag("result", "failed").register(meterRegistry);
+    }
+
+    /**
+     * Publishes batches until the outbox is empty or a batch fails.
+     */
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval:500ms}")
+    public void dispatch() {
+        shardRouter.onEachShard(this::dispatchShard);
+    }
+
+    private void dispatchShard() {
+        int size;
+        do {
+            try {
+                size = transactionTemplate.execute(status -> dispatchBatch());
+            } catch (RuntimeException e) {
+                log.warn("Outbox batch failed, retrying on the next poll", e);
+                return;
+            }
+        } while (size == batchSize);
+    }
+
+    private int dispatchBatch() {
+        List<OutboxEvent> events = outboxEventRepository.findBatch(Limit.of(batchSize));
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            sink.publish(events);
+        } catch (Exception e) {
+            failed.increment(events.size());
+            throw new IllegalStateException("Cannot publish " + events.size() + " outbox events", e);
+        }
+
+        outboxEventRepository.deleteAllInBatch(events);
+        published.increment(events.size());
+        return events.size();
+    }
+}
@@ -0,0 +1,17 @@
+package msyaipulanwar.restful.outbox;
+
+import msyaipulanwar.restful.entity.OutboxEvent;
+
+import java.util.List;
+
+/**
+ * Destination of outbox events, chosen with {@code app.outbox.sink}. A batch is removed
+ * from the outbox only after {@link #publish} returns, so delivery is at least once and
+ * consumers should deduplicate on the event id.
+ */
+public interface OutboxSink {
+    /**
+     * @throws Exception if the batch could not be delivered, it is retried on the next poll
+     */
+    void publish(List<OutboxEvent> events) throws Exception;
+}
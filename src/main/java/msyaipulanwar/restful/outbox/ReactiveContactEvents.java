@@ -0,0 +1,69 @@
+package msyaipulanwar.restful.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import msyaipulanwar.restful.entity.Uuids;
+import msyaipulanwar.restful.model.ContactResponse;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * {@link ContactEvents} for the reactive profile. The returned Mono must be part of the
+ * reactive transaction that makes the change; the rows are drained by the same
+ * {@link OutboxDispatcher}.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveContactEvents {
+    private final DatabaseClient databaseClient;
+
+    private final ObjectMapper objectMapper;
+
+    public ReactiveContactEvents(DatabaseClient databaseClient, ObjectMapper objectMapper) {
+        this.databaseClient = databaseClient;
+        this.objectMapper = objectMapper;
+    }
+
+    public Mono<Void> created(String username, ContactResponse contact, long changeSeq) {
+        return insert(ContactEvents.CREATED, username, UUID.fromString(contact.getId()),
+                ContactEventPayload.of(contact, changeSeq));
+    }
+
+    public Mono<Void> updated(String username, ContactResponse contact, long changeSeq) {
+        return insert(ContactEvents.UPDATED, username, UUID.fromString(contact.getId()),
+                ContactEventPayload.of(contact, changeSeq));
+    }
+
+    public Mono<Void> deleted(String username, UUID contactId, long changeSeq) {
+        return insert(ContactEvents.DELETED, username, contactId,
+                Map.of("id", contactId.toString(), "changeSeq", changeSeq));
+    }
+
+    private Mono<Void> insert(String type, String username, UUID aggregateId, Object payload) {
+        return Mono.fromCallable(() -> payload(type, payload))
+                .flatMap(json -> databaseClient.sql("""
+                                insert into outbox_events (id, type, aggregate_id, username, payload, created_at)
+                                values (:id, :type, :aggregateId, :username, :payload, :createdAt)
+                                """)
+                        .bind("id", Uuids.toBytes(Uuids.timeOrdered()))
+                        .bind("type", type)
+                        .bind("aggregateId", Uuids.toBytes(aggregateId))
+                        .bind("username", username)
+                        .bind("payload", json)
+                        .bind("createdAt", System.currentTimeMillis())
+                        .then());
+    }
+
+    private String payload(String type, Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize " + type + " event", e);
+        }
+    }
+}
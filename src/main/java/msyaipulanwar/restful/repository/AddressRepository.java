@@ -0,0 +1,31 @@
+package msyaipulanwar.restful.repository;
+
+import msyaipulanwar.restful.entity.Address;
+import msyaipulanwar.restful.entity.Contact;
+import msyaipulanwar.restful.entity.User;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface AddressRepository extends JpaRepository<Address, UUID> {
+    Optional<Address> findFirstByContactAndId(Contact contact, UUID id);
+
+    List<Address> findAllByContact(Contact contact);
+
+    /**
+     * Removes the addresses of a contact owned by the user, run before deleting the contact.
+     */
+    @Modifying
+    @Query("""
+            delete from Address a
+            where a.contact in (select c from Contact c where c.user = :user and c.id = :contactId)
+            """)
+    int deleteAllByUserAndContactId(@Param("user") User user, @Param("contactId") UUID contactId);
+}
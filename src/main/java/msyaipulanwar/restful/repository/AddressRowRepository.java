@@ -0,0 +1,20 @@
+package msyaipulanwar.restful.repository;
+
+import msyaipulanwar.restful.entity.AddressRow;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+import java.util.Collection;
+import java.util.UUID;
+
+@Repository
+public interface AddressRowRepository extends R2dbcRepository<AddressRow, UUID> {
+    /**
+     * Addresses of a page of contacts with one {@code IN} query.
+     */
+    @Query("select * from addresses where contact_id in (:contactIds)")
+    Flux<AddressRow> findAllByContactIds(@Param("contactIds") Collection<UUID> contactIds);
+}
@@ -0,0 +1,43 @@
+package msyaipulanwar.restful.repository;
+
+import msyaipulanwar.restful.entity.ContactChangeSequence;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface ContactChangeSequenceRepository extends JpaRepository<ContactChangeSequence, String> {
+    /**
+     * Creates or bumps the user's counter and leaves the new value in LAST_INSERT_ID() of the
+     * connection. Shared with ContactRowRepository.
+     */
+    String INCREMENT = """
+            insert into contact_change_sequences (username, last_seq) values (:username, last_insert_id(1))
+            on duplicate key update last_seq = last_insert_id(last_seq + 1)
+            """;
+
+    String LAST_INSERT_ID = "select cast(last_insert_id() as signed)";
+
+    @Modifying
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Query(value = INCREMENT, nativeQuery = true)
+    int increment(@Param("username") String username);
+
+    @Query(value = LAST_INSERT_ID, nativeQuery = true)
+    long lastInsertId();
+
+    /**
+     * Change sequence for the rows the current transaction writes. The counter row stays
+     * locked until commit, so a user's writes get their numbers in commit order and the feed
+     * never sees a number before every smaller one is committed. Concurrent writes of the
+     * same user queue on that lock.
+     */
+    default long next(String username) {
+        increment(username);
+        return lastInsertId();
+    }
+}
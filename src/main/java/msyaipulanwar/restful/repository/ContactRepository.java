@@ -1,13 +1,172 @@
 package msyaipulanwar.restful.repository;
 
 import msyaipulanwar.restful.entity.Contact;
+import jakarta.persistence.QueryHint;
+import jakarta.persistence.criteria.Predicate;
 import msyaipulanwar.restful.entity.User;
+import msyaipulanwar.restful.model.ContactResponse;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
-public interface ContactRepository extends JpaRepository<Contact, String> {
-    Optional<Contact> findFirstByUserAndId(User user, String id);
+public interface ContactRepository extends JpaRepository<Contact, UUID>, JpaSpecificationExecutor<Contact> {
+    Optional<Contact> findFirstByUserAndId(User user, UUID id);
+
+    /**
+     * Loads the contact and its addresses with one joined SELECT.
+     */
+    @EntityGraph(attributePaths = "addresses")
+    Optional<Contact> findWithAddressesByUserAndId(User user, UUID id);
+
+    /**
+     * Read-only projection for single contact reads, skips entity hydration and the
+     * persistence context.
+     */
+    @Query("""
+            select new msyaipulanwar.restful.model.ContactResponse(c.id, c.firstName, c.lastName, c.phone, c.email, c.version)
+            from Contact c
+            where c.user = :user and c.id = :id
+            """)
+    Optional<ContactResponse> findResponseByUserAndId(@Param("user") User user, @Param("id") UUID id);
+
+    /**
+     * Version only lookup for conditional requests, does not hydrate the entity.
+     */
+    @Query("select c.version from Contact c where c.user = :user and c.id = :id")
+    Optional<Long> findVersionByUserAndId(@Param("user") User user, @Param("id") UUID id);
+
+    /**
+     * Single statement delete scoped to the owner, returns the number of deleted rows.
+     */
+    @Modifying
+    @Query("delete from Contact c where c.user = :user and c.id = :id")
+    int deleteByUserAndId(@Param("user") User user, @Param("id") UUID id);
+
+    /**
+     * Single statement update scoped to the owner, returns the number of updated rows.
+     */
+    @Modifying
+    @Query("""
+            update Contact c
+            set c.firstName = :firstName, c.lastName = :lastName, c.phone = :phone, c.email = :email,
+                c.version = c.version + 1, c.updatedAt = :now, c.changeSeq = :changeSeq
+            where c.user = :user and c.id = :id
+            """)
+    int updateByUserAndId(@Param("user") User user,
+                          @Param("id") UUID id,
+                          @Param("now") long now,
+                          @Param("changeSeq") long changeSeq,
+                          @Param("firstName") String firstName,
+                          @Param("lastName") String lastName,
+                          @Param("phone") String phone,
+                          @Param("email") String email);
+
+    /**
+     * Partial update in one statement: null parameters keep the current value. With a non
+     * null {@code version} the row is only updated if it is still at that version.
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("""
+            update Contact c
+            set c.firstName = coalesce(:firstName, c.firstName),
+                c.lastName = coalesce(:lastName, c.lastName),
+                c.phone = coalesce(:phone, c.phone),
+                c.email = coalesce(:email, c.email),
+                c.version = c.version + 1,
+                c.updatedAt = :now,
+                c.changeSeq = :changeSeq
+            where c.user = :user and c.id = :id
+              and (:version is null or c.version = :version)
+            """)
+    int patchByUserAndId(@Param("user") User user,
+                         @Param("id") UUID id,
+                         @Param("version") Long version,
+                         @Param("now") long now,
+                         @Param("changeSeq") long changeSeq,
+                         @Param("firstName") String firstName,
+                         @Param("lastName") String lastName,
+                         @Param("phone") String phone,
+                         @Param("email") String email);
+
+    /**
+     * Keyset page over (username, id): seeks past {@code after} on idx_contacts_username_id
+     * instead of skipping rows with OFFSET. Ids compare as bytes, which for UUIDv7 is
+     * creation order. Filters are {@link LikePatterns#prefix} patterns or null.
+     * <p>
+     * A selective filter range scans its (username, column, id) index and sorts only the
+     * matches, a name filter merges the first and last name ranges. For a filter that
+     * matches most of the user's contacts the id walk stays cheaper and MySQL picks that.
+     * Only the supplied filters go into the WHERE clause: {@code :name is null or ...} would
+     * not fold away with server side prepared statements, which useCursorFetch turns on, and
+     * then no filter index is usable. Check plans with EXPLAIN on a connection with the
+     * application's URL.
+     */
+    default List<Contact> search(User user, UUID after, String name, String email, String phone, Limit limit) {
+        Specification<Contact> specification = (root, query, builder) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            predicates.add(builder.equal(root.get("user"), user));
+            predicates.add(builder.greaterThan(root.<UUID>get("id"), after));
+            if (name != null) {
+                predicates.add(builder.or(
+                        builder.like(root.<String>get("firstName"), name, LikePatterns.ESCAPE),
+                        builder.like(root.<String>get("lastName"), name, LikePatterns.ESCAPE)));
+            }
+            if (email != null) {
+                predicates.add(builder.like(root.<String>get("email"), email, LikePatterns.ESCAPE));
+            }
+            if (phone != null) {
+                predicates.add(builder.like(root.<String>get("phone"), phone, LikePatterns.ESCAPE));
+            }
+            return builder.and(predicates.toArray(Predicate[]::new));
+        };
+        return findBy(specification, contacts -> contacts.sortBy(Sort.by("id")).limit(limit.max()).all());
+    }
+
+    /**
+     * Contacts changed after the (changeSeq, id) position, in that order. Seeks on
+     * idx_contacts_username_change_seq.
+     */
+    @Query("""
+            select c from Contact c
+            where c.user = :user
+              and (c.changeSeq > :since or (c.changeSeq = :since and c.id > :after))
+            order by c.changeSeq asc, c.id asc
+            """)
+    List<Contact> findChanges(@Param("user") User user,
+                              @Param("since") long since,
+                              @Param("after") UUID after,
+                              Limit limit);
+
+    /**
+     * Forward-only cursor over all contacts of a user. Rows are read {@code 1000} at a time
+     * (needs useCursorFetch on the MySQL URL) and mapped straight to DTOs, so nothing is
+     * kept in the persistence context. Must be consumed inside a transaction and closed.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            select new msyaipulanwar.restful.model.ContactResponse(c.id, c.firstName, c.lastName, c.phone, c.email, c.version)
+            from Contact c
+            where c.user = :user
+            order by c.id asc
+            """)
+    Stream<ContactResponse> streamByUser(@Param("user") User user);
 }
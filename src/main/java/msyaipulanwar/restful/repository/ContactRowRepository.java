@@ -0,0 +1,85 @@
+package msyaipulanwar.restful.repository;
+
+import msyaipulanwar.restful.entity.ContactRow;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+/**
+ * Reactive counterpart of {@link ContactRepository}, with the same single statement writes
+ * scoped to the owner. UUID parameters are bound as BINARY(16) by the converters in
+ * ReactiveWebConfiguration.
+ */
+@Repository
+public interface ContactRowRepository extends R2dbcRepository<ContactRow, UUID> {
+    Mono<ContactRow> findFirstByUsernameAndId(String username, UUID id);
+
+    @Query("select version from contacts where username = :username and id = :id")
+    Mono<Long> findVersionByUsernameAndId(@Param("username") String username, @Param("id") UUID id);
+
+    /**
+     * See {@link ContactChangeSequenceRepository#next}, both statements have to run on the
+     * transaction's connection.
+     */
+    default Mono<Long> nextChangeSeq(String username) {
+        return incrementChangeSeq(username).then(lastInsertId());
+    }
+
+    @Modifying
+    @Query(ContactChangeSequenceRepository.INCREMENT)
+    Mono<Integer> incrementChangeSeq(@Param("username") String username);
+
+    @Query(ContactChangeSequenceRepository.LAST_INSERT_ID)
+    Mono<Long> lastInsertId();
+
+    @Modifying
+    @Query("delete from contacts where username = :username and id = :id")
+    Mono<Integer> deleteByUsernameAndId(@Param("username") String username, @Param("id") UUID id);
+
+    @Modifying
+    @Query("""
+            update contacts
+            set first_name = :firstName, last_name = :lastName, phone = :phone, email = :email,
+                version = version + 1, updated_at = :now, change_seq = :changeSeq
+            where username = :username and id = :id
+            """)
+    Mono<Integer> updateByUsernameAndId(@Param("username") String username,
+                                        @Param("id") UUID id,
+                                        @Param("now") long now,
+                                        @Param("changeSeq") long changeSeq,
+                                        @Param("firstName") String firstName,
+                                        @Param("lastName") String lastName,
+                                        @Param("phone") String phone,
+                                        @Param("email") String email);
+
+    /**
+     * Null parameters keep the current value, a non null {@code version} must match.
+     */
+    @Modifying
+    @Query("""
+            update contacts
+            set first_name = coalesce(:firstName, first_name),
+                last_name = coalesce(:lastName, last_name),
+                phone = coalesce(:phone, phone),
+                email = coalesce(:email, email),
+                version = version + 1,
+                updated_at = :now,
+                change_seq = :changeSeq
+            where username = :username and id = :id
+              and (:version is null or version = :version)
+            """)
+    Mono<Integer> patchByUsernameAndId(@Param("username") String username,
+                                       @Param("id") UUID id,
+                                       @Param("version") Long version,
+                                       @Param("now") long now,
+                                       @Param("changeSeq") long changeSeq,
+                                       @Param("firstName") String firstName,
+                                       @Param("lastName") String lastName,
+                                       @Param("phone") String phone,
+                                       @Param("email") String email);
+}
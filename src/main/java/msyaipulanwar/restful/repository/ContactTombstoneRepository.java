@@ -0,0 +1,34 @@
+package msyaipulanwar.restful.repository;
+
+import msyaipulanwar.restful.entity.ContactTombstone;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface ContactTombstoneRepository extends JpaRepository<ContactTombstone, UUID> {
+    /**
+     * Deletes after the (changeSeq, id) position, same ordering as
+     * {@link ContactRepository#findChanges}.
+     */
+    @Query("""
+            select t from ContactTombstone t
+            where t.username = :username
+              and (t.changeSeq > :since or (t.changeSeq = :since and t.id > :after))
+            order by t.changeSeq asc, t.id asc
+            """)
+    List<ContactTombstone> findChanges(@Param("username") String username,
+                                       @Param("since") long since,
+                                       @Param("after") UUID after,
+                                       Limit limit);
+
+    @Modifying
+    @Query("delete from ContactTombstone t where t.deletedAt < :before")
+    int deleteByDeletedAtBefore(@Param("before") long before);
+}
@@ -0,0 +1,31 @@
+package msyaipulanwar.restful.repository;
+
+/**
+ * Builds LIKE patterns from user input. The search queries declare {@code escape '!'}, so
+ * {@code %}, {@code _} and {@code !} in the input match themselves instead of widening the
+ * scan. A backslash would need different quoting in JPQL and MySQL, hence {@code !}.
+ */
+public final class LikePatterns {
+    public static final char ESCAPE = '!';
+
+    private LikePatterns() {
+    }
+
+    /**
+     * @return a pattern matching values that start with {@code value}, null for null
+     */
+    public static String prefix(String value) {
+        if (value == null) {
+            return null;
+        }
+        StringBuilder pattern = new StringBuilder(value.length() + 2);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '%' || c == '_' || c == ESCAPE) {
+                pattern.append(ESCAPE);
+            }
+            pattern.append(c);
+        }
+        return pattern.append('%').toString();
+    }
+}
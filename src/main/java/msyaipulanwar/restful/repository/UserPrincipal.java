@@ -0,0 +1,22 @@
+package msyaipulanwar.restful.repository;
+
+import msyaipulanwar.restful.entity.User;
+
+/**
+ * Read-only projection of the columns needed to authenticate a request. It never loads
+ * the password hash or the contacts collection.
+ */
+public record UserPrincipal(String username, String name, String token, Long tokenExpired) {
+
+    /**
+     * @return a new detached user carrying only the principal columns
+     */
+    public User toUser() {
+        User user = new User();
+        user.setUsername(username);
+        user.setName(name);
+        user.setToken(token);
+        user.setTokenExpired(tokenExpired);
+        return user;
+    }
+}
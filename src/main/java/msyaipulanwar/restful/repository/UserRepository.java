@@ -2,10 +2,48 @@ package msyaipulanwar.restful.repository;
 
 import msyaipulanwar.restful.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, String> {
 
-    Optional<User> findFirstByToken(String token);
+    @Query("""
+            select new msyaipulanwar.restful.repository.UserPrincipal(u.username, u.name, u.token, u.tokenExpired)
+            from User u
+            where u.token = :token
+            """)
+    Optional<UserPrincipal> findPrincipalByToken(@Param("token") String token);
+
+    @Query("""
+            select new msyaipulanwar.restful.repository.UserPrincipal(u.username, u.name, u.token, u.tokenExpired)
+            from User u
+            where u.username = :username
+            """)
+    Optional<UserPrincipal> findPrincipalByUsername(@Param("username") String username);
+
+    @Modifying
+    @Query("update User u set u.token = :token, u.tokenExpired = :tokenExpired where u.username = :username")
+    int updateToken(@Param("username") String username,
+                    @Param("token") String token,
+                    @Param("tokenExpired") Long tokenExpired);
+
+    @Modifying
+    @Query("update User u set u.token = null, u.tokenExpired = null where u.username = :username")
+    int clearToken(@Param("username") String username);
+
+    /**
+     * Null parameters keep the current value.
+     */
+    @Modifying
+    @Query("""
+            update User u
+            set u.name = coalesce(:name, u.name), u.password = coalesce(:password, u.password)
+            where u.username = :username
+            """)
+    int updateProfile(@Param("username") String username,
+                      @Param("name") String name,
+                      @Param("password") String password);
 }
@@ -0,0 +1,99 @@
+package msyaipulanwar.restful.resolver;
+
+import msyaipulanwar.restful.cache.TokenCache;
+import msyaipulanwar.restful.entity.User;
+import msyaipulanwar.restful.exception.ApiError;
+import msyaipulanwar.restful.repository.UserPrincipal;
+import msyaipulanwar.restful.security.TokenSigner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.MethodParameter;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.BindingContext;
+import org.springframework.web.reactive.result.method.HandlerMethodArgumentResolver;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link UserArgumentResolver} for the reactive profile: the same {@code X-API-TOKEN} rules
+ * and token cache, with the users lookup done over R2DBC. Signed tokens still load the
+ * principal by username, as handlers get a detached user instead of a lazy reference.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveUserArgumentResolver implements HandlerMethodArgumentResolver {
+    private static final String PRINCIPAL_COLUMNS = "select username, name, token, token_expired_at from users ";
+    private final DatabaseClient databaseClient;
+    private final TokenCache tokenCache;
+    private final TokenSigner tokenSigner;
+
+    public ReactiveUserArgumentResolver(DatabaseClient databaseClient, TokenCache tokenCache, TokenSigner tokenSigner) {
+        this.databaseClient = databaseClient;
+        this.tokenCache = tokenCache;
+        this.tokenSigner = tokenSigner;
+    }
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return User.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public Mono<Object> resolveArgument(MethodParameter parameter, BindingContext bindingContext, ServerWebExchange exchange) {
+        String token = exchange.getRequest().getHeaders().getFirst("X-API-TOKEN");
+
+        if(token == null){
+            return unauthorized();
+        }
+
+        Mono<User> user = tokenSigner.isEnabled() && tokenSigner.isSigned(token) ? resolveSigned(token) : resolveOpaque(token);
+        return user.cast(Object.class);
+    }
+
+    private Mono<User> resolveOpaque(String token) {
+        Mono<User> user = Mono.justOrEmpty(tokenCache.get(token))
+                .switchIfEmpty(Mono.defer(() -> tokenCache.isUnknown(token) ? Mono.<User>empty()
+                        : findPrincipal("where token = :value", token)
+                                .switchIfEmpty(Mono.fromRunnable(() -> tokenCache.putUnknown(token)))
+                                .doOnNext(tokenCache::put)
+                                .map(UserPrincipal::toUser)));
+
+        return user
+                .switchIfEmpty(unauthorized())
+                .flatMap(found -> {
+                    if(System.currentTimeMillis()*1000 > found.getTokenExpired()){
+                        tokenCache.invalidate(token);
+                        return unauthorized();
+                    }
+                    return Mono.just(found);
+                });
+    }
+
+    /**
+     * Like the servlet resolver, the principal is looked up once and cached under the token.
+     */
+    private Mono<User> resolveSigned(String token) {
+        return Mono.justOrEmpty(tokenSigner.verify(token))
+                .filter(claims -> System.currentTimeMillis()*1000 <= claims.expireAt())
+                .flatMap(claims -> Mono.justOrEmpty(tokenCache.get(token))
+                        .switchIfEmpty(Mono.defer(() -> findPrincipal("where username = :value", claims.username())
+                                .doOnNext(principal -> tokenCache.put(token, principal))
+                                .map(UserPrincipal::toUser))))
+                .switchIfEmpty(unauthorized());
+    }
+
+    private Mono<UserPrincipal> findPrincipal(String where, String value) {
+        return databaseClient.sql(PRINCIPAL_COLUMNS + where)
+                .bind("value", value)
+                .map(row -> new UserPrincipal(
+                        row.get("username", String.class),
+                        row.get("name", String.class),
+                        row.get("token", String.class),
+                        row.get("token_expired_at", Long.class)))
+                .one();
+    }
+
+    private <T> Mono<T> unauthorized() {
+        return Mono.error(ApiError.UNAUTHORIZED::exception);
+    }
+}
@@ -1,28 +1,48 @@
 package msyaipulanwar.restful.resolver;
 
 import jakarta.servlet.http.HttpServletRequest;
+import msyaipulanwar.restful.cache.TokenCache;
+import msyaipulanwar.restful.datasource.ReadYourWrites;
 import msyaipulanwar.restful.entity.User;
+import msyaipulanwar.restful.exception.ApiError;
+import msyaipulanwar.restful.repository.UserPrincipal;
 import msyaipulanwar.restful.repository.UserRepository;
+import msyaipulanwar.restful.security.TokenSigner;
+import msyaipulanwar.restful.shard.ShardRouter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.MethodParameter;
-import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.support.WebDataBinderFactory;
 import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
 import org.springframework.web.method.support.HandlerMethodArgumentResolver;
 import org.springframework.web.method.support.ModelAndViewContainer;
-import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Optional;
 
 @Component
 public class UserArgumentResolver implements HandlerMethodArgumentResolver {
     private static final Logger log = LoggerFactory.getLogger(UserArgumentResolver.class);
-    private final String unauthorized;
     private final UserRepository userRepository;
+    private final TokenCache tokenCache;
+    private final TokenSigner tokenSigner;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate principalLookup;
 
-    public UserArgumentResolver(UserRepository userRepository) {
+    public UserArgumentResolver(UserRepository userRepository, TokenCache tokenCache, TokenSigner tokenSigner,
+                                ShardRouter shardRouter, PlatformTransactionManager transactionManager) {
         this.userRepository = userRepository;
-        unauthorized = "Unauthorized";
+        this.tokenCache = tokenCache;
+        this.tokenSigner = tokenSigner;
+        this.shardRouter = shardRouter;
+        // not read only, so the lookup goes to the primary: a replica that lags behind does not
+        // know a token issued a moment ago and still knows one that was revoked
+        this.principalLookup = new TransactionTemplate(transactionManager);
+        principalLookup.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
     }
 
     @Override
@@ -37,17 +57,78 @@ public class UserArgumentResolver implements HandlerMethodArgumentResolver {
         String token = servletRequest.getHeader("X-API-TOKEN");
 
         if(token == null){
-            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, unauthorized);
+            throw ApiError.UNAUTHORIZED.exception();
         }
 
-        User user = userRepository.findFirstByToken(token)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, unauthorized));
+        User user = tokenSigner.isEnabled() && tokenSigner.isSigned(token) ? resolveSigned(token) : resolveOpaque(token);
+        // lets the datasource routing apply the read-your-writes window to this user
+        webRequest.setAttribute(ReadYourWrites.USERNAME_ATTRIBUTE, user.getUsername(), RequestAttributes.SCOPE_REQUEST);
+        return user;
+    }
+
+    private User resolveOpaque(String token) {
+        User user = tokenCache.get(token).orElse(null);
+        if(user == null){
+            if(tokenCache.isUnknown(token)){
+                throw ApiError.UNAUTHORIZED.exception();
+            }
+            UserPrincipal principal = findPrincipalByToken(token).orElse(null);
+            if(principal == null){
+                tokenCache.putUnknown(token);
+                throw ApiError.UNAUTHORIZED.exception();
+            }
+            tokenCache.put(principal);
+            user = principal.toUser();
+        }
 
-        log.warn("system : {}, current : {}", System.currentTimeMillis(), user.getTokenExpired());
+        log.debug("system : {}, current : {}", System.currentTimeMillis(), user.getTokenExpired());
         if(System.currentTimeMillis()*1000 > user.getTokenExpired()){
-            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, unauthorized);
+            tokenCache.invalidate(token);
+            throw ApiError.UNAUTHORIZED.exception();
+        }
+
+        return user;
+    }
+
+    /**
+     * Opaque tokens say nothing about their user, so with sharding every shard is asked in
+     * turn, each in its own transaction so it gets its own connection.
+     */
+    private Optional<UserPrincipal> findPrincipalByToken(String token) {
+        if (!shardRouter.isEnabled()) {
+            return principalLookup.execute(status -> userRepository.findPrincipalByToken(token));
+        }
+        for (String shard : shardRouter.shards()) {
+            Optional<UserPrincipal> principal = shardRouter.onShard(shard,
+                    () -> principalLookup.execute(status -> userRepository.findPrincipalByToken(token)));
+            if (principal.isPresent()) {
+                return principal;
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * The signature proves who the token was issued to, not that the user still exists, so
+     * the principal is looked up once and cached under the token like an opaque one.
+     */
+    private User resolveSigned(String token) {
+        TokenSigner.Claims claims = tokenSigner.verify(token)
+                .orElseThrow(ApiError.UNAUTHORIZED::exception);
+
+        if(System.currentTimeMillis()*1000 > claims.expireAt()){
+            throw ApiError.UNAUTHORIZED.exception();
         }
 
+        User user = tokenCache.get(token).orElse(null);
+        if(user == null){
+            String username = claims.username();
+            UserPrincipal principal = shardRouter.onShard(shardRouter.shardFor(username),
+                    () -> principalLookup.execute(status -> userRepository.findPrincipalByUsername(username)))
+                    .orElseThrow(ApiError.UNAUTHORIZED::exception);
+            tokenCache.put(token, principal);
+            user = principal.toUser();
+        }
         return user;
     }
 }
@@ -0,0 +1,70 @@
+package msyaipulanwar.restful.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Picks the BCrypt log rounds for this machine at startup: the smallest value between
+ * {@code min-log-rounds} and {@code max-log-rounds} whose hash takes at least
+ * {@code target-millis}. Setting {@code log-rounds} skips the calibration.
+ */
+@Component
+public class BCryptWorkFactor {
+    private static final Logger log = LoggerFactory.getLogger(BCryptWorkFactor.class);
+
+    private final int logRounds;
+
+    public BCryptWorkFactor(@Value("${app.security.bcrypt.log-rounds:0}") int logRounds,
+                            @Value("${app.security.bcrypt.target-millis:250}") long targetMillis,
+                            @Value("${app.security.bcrypt.min-log-rounds:8}") int minLogRounds,
+                            @Value("${app.security.bcrypt.max-log-rounds:16}") int maxLogRounds) {
+        if (logRounds > 0) {
+            this.logRounds = logRounds;
+        } else {
+            this.logRounds = calibrate(targetMillis, minLogRounds, maxLogRounds);
+        }
+        log.info("BCrypt log rounds : {}", this.logRounds);
+    }
+
+    private static int calibrate(long targetMillis, int minLogRounds, int maxLogRounds) {
+        // let the JIT compile the cipher before timing anything
+        String warmup = BCrypt.gensalt(4);
+        for (int i = 0; i < 20; i++) {
+            FastBCrypt.hashpw("calibration", warmup);
+        }
+
+        int rounds = minLogRounds;
+        for (; rounds < maxLogRounds; rounds++) {
+            String salt = BCrypt.gensalt(rounds);
+            long start = System.nanoTime();
+            FastBCrypt.hashpw("calibration", salt);
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            if (elapsedMillis >= targetMillis) {
+                break;
+            }
+        }
+        return rounds;
+    }
+
+    public int getLogRounds() {
+        return logRounds;
+    }
+
+    public String gensalt() {
+        return BCrypt.gensalt(logRounds);
+    }
+
+    /**
+     * @return true if the hash was made with a different cost than the current one
+     */
+    public boolean needsRehash(String hashed) {
+        int off = hashed.length() > 3 && hashed.charAt(3) == '$' ? 4 : 3;
+        try {
+            return Integer.parseInt(hashed.substring(off, off + 2)) != logRounds;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+}
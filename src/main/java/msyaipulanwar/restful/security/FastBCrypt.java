@@ -0,0 +1,320 @@
+package msyaipulanwar.restful.security;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Allocation-reduced variant of {@link BCrypt} producing byte-identical hashes.
+ * <p>
+ * Differences from the reference implementation:
+ * <ul>
+ * <li>the expanded key and cipher text live in a per-thread engine and are reset with
+ * {@code System.arraycopy} instead of being cloned on every hash;</li>
+ * <li>the 64-bit Blowfish block is passed around packed in a long instead of an array;</li>
+ * <li>key material is streamed with plain int offsets instead of one-entry array holders;</li>
+ * <li>the password and salt words used by the expensive key schedule loop are the same in
+ * every round, so they are extracted once per hash instead of 2 * 2^log_rounds times;</li>
+ * <li>the trailing NUL of the 2a/2b/2y schemes is handled while streaming, without copying
+ * the password.</li>
+ * </ul>
+ * Salts are still generated with {@link BCrypt#gensalt()}.
+ */
+public final class FastBCrypt {
+
+    private static final int P_LEN = BCrypt.P_orig.length;
+
+    private static final int S_LEN = BCrypt.S_orig.length;
+
+    private static final int C_LEN = BCrypt.bf_crypt_ciphertext.length;
+
+    private static final ThreadLocal<FastBCrypt> ENGINE = ThreadLocal.withInitial(FastBCrypt::new);
+
+    private final int[] P = new int[P_LEN];
+
+    private final int[] S = new int[S_LEN];
+
+    private final int[] cdata = new int[C_LEN];
+
+    private final int[] passwordWords = new int[P_LEN];
+
+    private final int[] passwordWordsBug = new int[P_LEN];
+
+    private final int[] saltWords = new int[P_LEN];
+
+    private final byte[] hashed = new byte[C_LEN * 4];
+
+    private FastBCrypt() {
+    }
+
+    /**
+     * Hash a password using the OpenBSD bcrypt scheme
+     * @param password the password to hash
+     * @param salt the salt to hash with (perhaps generated using BCrypt.gensalt)
+     * @return the hashed password
+     */
+    public static String hashpw(String password, String salt) {
+        return hashpw(password.getBytes(StandardCharsets.UTF_8), salt, false);
+    }
+
+    /**
+     * Check that a plaintext password matches a previously hashed one
+     * @param plaintext the plaintext password to verify
+     * @param hashed the previously-hashed password
+     * @return true if the passwords match, false otherwise
+     */
+    public static boolean checkpw(String plaintext, String hashed) {
+        byte[] passwordb = plaintext.getBytes(StandardCharsets.UTF_8);
+        return BCrypt.equalsNoEarlyReturn(hashed, hashpw(passwordb, hashed, true));
+    }
+
+    private static String hashpw(byte[] passwordb, String salt, boolean forCheck) {
+        char minor = (char) 0;
+        int off;
+
+        if (salt == null) {
+            throw new IllegalArgumentException("salt cannot be null");
+        }
+
+        int saltLength = salt.length();
+
+        if (saltLength < 28) {
+            throw new IllegalArgumentException("Invalid salt");
+        }
+
+        if (salt.charAt(0) != '$' || salt.charAt(1) != '2') {
+            throw new IllegalArgumentException("Invalid salt version");
+        }
+        if (salt.charAt(2) == '$') {
+            off = 3;
+        }
+        else {
+            minor = salt.charAt(2);
+            if ((minor != 'a' && minor != 'x' && minor != 'y' && minor != 'b') || salt.charAt(3) != '$') {
+                throw new IllegalArgumentException("Invalid salt revision");
+            }
+            off = 4;
+        }
+
+        if (salt.charAt(off + 2) > '$') {
+            throw new IllegalArgumentException("Missing salt rounds");
+        }
+
+        if (off == 4 && saltLength < 29) {
+            throw new IllegalArgumentException("Invalid salt");
+        }
+        int rounds = Integer.parseInt(salt.substring(off, off + 2));
+
+        byte[] saltb = BCrypt.decode_base64(salt.substring(off + 3, off + 25), BCrypt.BCRYPT_SALT_LEN);
+
+        FastBCrypt engine = ENGINE.get();
+        byte[] hashed = engine.crypt_raw(passwordb, minor >= 'a', saltb, rounds, minor == 'x',
+                minor == 'a' ? 0x10000 : 0, forCheck);
+
+        StringBuilder rs = new StringBuilder(60);
+        rs.append("$2");
+        if (minor >= 'a') {
+            rs.append(minor);
+        }
+        rs.append('$');
+        if (rounds < 10) {
+            rs.append('0');
+        }
+        rs.append(rounds);
+        rs.append('$');
+        BCrypt.encode_base64(saltb, saltb.length, rs);
+        BCrypt.encode_base64(hashed, C_LEN * 4 - 1, rs);
+        return rs.toString();
+    }
+
+    /**
+     * Fill the correct and sign-extension-bug word streams for a key. When {@code nul} is
+     * set the data is treated as if it had a trailing zero byte appended.
+     * @return the cumulative non-benign sign extension flag
+     */
+    private static int streamtowords(byte[] data, boolean nul, int[] words, int[] wordsBug) {
+        int length = nul ? data.length + 1 : data.length;
+        int off = 0, sign = 0;
+
+        for (int i = 0; i < words.length; i++) {
+            int word = 0, wordBug = 0;
+            for (int j = 0; j < 4; j++) {
+                byte b = off < data.length ? data[off] : 0;
+                word = (word << 8) | (b & 0xff);
+                wordBug = (wordBug << 8) | b; // sign extension bug
+                if (j > 0) {
+                    sign |= wordBug & 0x80;
+                }
+                off = off + 1 == length ? 0 : off + 1;
+            }
+            words[i] = word;
+            wordsBug[i] = wordBug;
+        }
+        return sign;
+    }
+
+    /**
+     * Blowfish encipher a single 64-bit block. The halves are packed into a long so the
+     * block stays in registers instead of going through an array.
+     */
+    private long encipher(int l, int r) {
+        final int[] P = this.P, S = this.S;
+        int n;
+
+        l ^= P[0];
+        for (int i = 0; i <= BCrypt.BLOWFISH_NUM_ROUNDS - 2;) {
+            n = S[(l >>> 24)];
+            n += S[0x100 | ((l >> 16) & 0xff)];
+            n ^= S[0x200 | ((l >> 8) & 0xff)];
+            n += S[0x300 | (l & 0xff)];
+            r ^= n ^ P[++i];
+
+            n = S[(r >>> 24)];
+            n += S[0x100 | ((r >> 16) & 0xff)];
+            n ^= S[0x200 | ((r >> 8) & 0xff)];
+            n += S[0x300 | (r & 0xff)];
+            l ^= n ^ P[++i];
+        }
+        return ((long) (r ^ P[BCrypt.BLOWFISH_NUM_ROUNDS + 1]) << 32) | (l & 0xffffffffL);
+    }
+
+    /**
+     * Key the Blowfish cipher with pre-extracted key words. This runs 2 * 2^log_rounds times
+     * per hash, so the block cipher is inlined and the block kept in locals.
+     */
+    private void key(int[] words) {
+        final int[] P = this.P, S = this.S;
+        int l = 0, r = 0, n;
+
+        for (int i = 0; i < P_LEN; i++) {
+            P[i] ^= words[i];
+        }
+
+        for (int k = 0; k < P_LEN + S_LEN; k += 2) {
+            l ^= P[0];
+            for (int i = 0; i <= BCrypt.BLOWFISH_NUM_ROUNDS - 2;) {
+                n = S[l >>> 24];
+                n += S[0x100 | ((l >> 16) & 0xff)];
+                n ^= S[0x200 | ((l >> 8) & 0xff)];
+                n += S[0x300 | (l & 0xff)];
+                r ^= n ^ P[++i];
+
+                n = S[r >>> 24];
+                n += S[0x100 | ((r >> 16) & 0xff)];
+                n ^= S[0x200 | ((r >> 8) & 0xff)];
+                n += S[0x300 | (r & 0xff)];
+                l ^= n ^ P[++i];
+            }
+            n = r ^ P[BCrypt.BLOWFISH_NUM_ROUNDS + 1];
+            r = l;
+            l = n;
+
+            if (k < P_LEN) {
+                P[k] = l;
+                P[k + 1] = r;
+            }
+            else {
+                S[k - P_LEN] = l;
+                S[k - P_LEN + 1] = r;
+            }
+        }
+    }
+
+    /**
+     * Perform the "enhanced key schedule" step, see {@link BCrypt} for the details of the
+     * sign extension safety measure.
+     */
+    private void ekskey(int[] words, int sign, int safety) {
+        final int[] P = this.P, S = this.S;
+        int diff = 0;
+
+        for (int i = 0; i < P_LEN; i++) {
+            diff |= passwordWords[i] ^ passwordWordsBug[i];
+            P[i] ^= words[i];
+        }
+
+        diff |= diff >> 16;
+        diff &= 0xffff;
+        diff += 0xffff;
+        sign <<= 9;
+        sign &= ~diff & safety;
+
+        P[0] ^= sign;
+
+        // the salt is exactly 16 bytes, so its word stream repeats every 4 words
+        int l = 0, r = 0, doff = 0;
+        long lr;
+        for (int i = 0; i < P_LEN; i += 2) {
+            lr = encipher(l ^ saltWords[doff], r ^ saltWords[doff + 1]);
+            doff = (doff + 2) & 3;
+            P[i] = l = (int) (lr >>> 32);
+            P[i + 1] = r = (int) lr;
+        }
+
+        for (int i = 0; i < S_LEN; i += 2) {
+            lr = encipher(l ^ saltWords[doff], r ^ saltWords[doff + 1]);
+            doff = (doff + 2) & 3;
+            S[i] = l = (int) (lr >>> 32);
+            S[i + 1] = r = (int) lr;
+        }
+    }
+
+    private byte[] crypt_raw(byte[] password, boolean nul, byte[] salt, int log_rounds, boolean sign_ext_bug,
+                             int safety, boolean for_check) {
+        long rounds;
+        if (log_rounds < 4 || log_rounds > 31) {
+            if (!for_check) {
+                throw new IllegalArgumentException("Bad number of rounds");
+            }
+            if (log_rounds != 0) {
+                throw new IllegalArgumentException("Bad number of rounds");
+            }
+            rounds = 0;
+        }
+        else {
+            rounds = BCrypt.roundsForLogRounds(log_rounds);
+            if (rounds < 16 || rounds > 2147483648L) {
+                throw new IllegalArgumentException("Bad number of rounds");
+            }
+        }
+
+        if (salt.length != BCrypt.BCRYPT_SALT_LEN) {
+            throw new IllegalArgumentException("Bad salt length");
+        }
+
+        System.arraycopy(BCrypt.P_orig, 0, P, 0, P_LEN);
+        System.arraycopy(BCrypt.S_orig, 0, S, 0, S_LEN);
+        System.arraycopy(BCrypt.bf_crypt_ciphertext, 0, cdata, 0, C_LEN);
+
+        // the key schedule always restarts at offset 0, so the words are the same every round
+        int sign = streamtowords(password, nul, passwordWords, passwordWordsBug);
+        for (int i = 0; i < P_LEN; i++) {
+            int word = 0;
+            for (int j = 0; j < 4; j++) {
+                word = (word << 8) | (salt[(i * 4 + j) & 15] & 0xff);
+            }
+            saltWords[i] = word;
+        }
+
+        int[] keyWords = sign_ext_bug ? passwordWordsBug : passwordWords;
+        ekskey(keyWords, sign, safety);
+        for (long i = 0; i < rounds; i++) {
+            key(keyWords);
+            key(saltWords);
+        }
+
+        for (int i = 0; i < 64; i++) {
+            for (int j = 0; j < C_LEN; j += 2) {
+                long lr = encipher(cdata[j], cdata[j + 1]);
+                cdata[j] = (int) (lr >>> 32);
+                cdata[j + 1] = (int) lr;
+            }
+        }
+
+        for (int i = 0, j = 0; i < C_LEN; i++) {
+            hashed[j++] = (byte) ((cdata[i] >> 24) & 0xff);
+            hashed[j++] = (byte) ((cdata[i] >> 16) & 0xff);
+            hashed[j++] = (byte) ((cdata[i] >> 8) & 0xff);
+            hashed[j++] = (byte) (cdata[i] & 0xff);
+        }
+        return hashed;
+    }
+}
@@ -0,0 +1,110 @@
+package msyaipulanwar.restful.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import msyaipulanwar.restful.exception.ApiError;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs BCrypt hashing on a dedicated CPU sized pool with a bounded queue, so a burst of
+ * logins cannot occupy every request thread. When the queue is full the request fails
+ * fast with 503 instead of piling up. The pool threads stay platform threads when
+ * {@code spring.threads.virtual.enabled} is set: a virtual request thread parks while it
+ * waits for the hash, and the CPU bound work never holds up the virtual thread carriers.
+ * <p>
+ * Callers must not hold a transaction while they wait, or a burst of logins parks with a
+ * pooled connection each and starves every other request of connections.
+ * <p>
+ * Queue depth and pool usage are published as {@code executor.*{name=passwordHash}},
+ * hashing time as {@code password.hash{operation=hash|check}}.
+ */
+@Component
+public class PasswordHasher {
+    private final ThreadPoolExecutor executor;
+    private final Timer hashTimer;
+    private final Timer checkTimer;
+    private final BCryptWorkFactor workFactor;
+
+    public PasswordHasher(BCryptWorkFactor workFactor,
+                          @Value("${app.security.hash-pool.threads:0}") int threads,
+                          @Value("${app.security.hash-pool.queue-capacity:64}") int queueCapacity,
+                          MeterRegistry meterRegistry) {
+        this.workFactor = workFactor;
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        // a capacity of 0 hands off directly, anything beyond the busy threads is rejected
+        BlockingQueue<Runnable> queue = queueCapacity > 0 ? new ArrayBlockingQueue<>(queueCapacity) : new SynchronousQueue<>();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                queue, threadFactory(), new ThreadPoolExecutor.AbortPolicy());
+
+        new ExecutorServiceMetrics(executor, "passwordHash", Tags.empty()).bindTo(meterRegistry);
+        this.hashTimer = Timer.builder("password.hash").tag("operation", "hash").register(meterRegistry);
+        this.checkTimer = Timer.builder("password.hash").tag("operation", "check").register(meterRegistry);
+    }
+
+    public String hash(String password) {
+        return submit(hashTimer, () -> FastBCrypt.hashpw(password, workFactor.gensalt()));
+    }
+
+    public boolean check(String password, String hashed) {
+        return submit(checkTimer, () -> FastBCrypt.checkpw(password, hashed));
+    }
+
+    /**
+     * @return true if the hash was made with a different work factor than the calibrated one
+     */
+    public boolean needsRehash(String hashed) {
+        return workFactor.needsRehash(hashed);
+    }
+
+    private <T> T submit(Timer timer, Supplier<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(() -> timer.record(task));
+        } catch (RejectedExecutionException e) {
+            throw ApiError.SERVER_BUSY.exception();
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw ApiError.SERVER_BUSY.exception();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static ThreadFactory threadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "password-hash-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,106 @@
+package msyaipulanwar.restful.security;
+
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Issues and verifies compact signed access tokens of the form
+ * {@code kid.base64url(username).expireAt.base64url(hmac)}. Verification is done purely in
+ * memory against the configured key ring, so keys can be rotated by adding a new key,
+ * switching {@code app.auth.active-key} and removing the old key once its tokens expire.
+ */
+@Component
+public class TokenSigner {
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final boolean enabled;
+    private final String activeKey;
+    private final Map<String, SecretKeySpec> keys = new HashMap<>();
+    private final ThreadLocal<Mac> mac = ThreadLocal.withInitial(() -> {
+        try {
+            return Mac.getInstance(ALGORITHM);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    public TokenSigner(TokenSigningProperties properties) {
+        this.enabled = "signed".equalsIgnoreCase(properties.getTokenMode());
+        this.activeKey = properties.getActiveKey();
+        properties.getKeys().forEach((id, secret) ->
+                keys.put(id, new SecretKeySpec(Base64.getDecoder().decode(secret), ALGORITHM)));
+
+        if (enabled && (activeKey == null || !keys.containsKey(activeKey))) {
+            throw new IllegalStateException("app.auth.active-key must name a key in app.auth.keys");
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Opaque tokens are UUIDs and never contain a dot, signed tokens always do.
+     */
+    public boolean isSigned(String token) {
+        return token.indexOf('.') > 0;
+    }
+
+    public String sign(String username, long expireAt) {
+        String payload = activeKey + "." + ENCODER.encodeToString(username.getBytes(StandardCharsets.UTF_8))
+                + "." + expireAt;
+        return payload + "." + ENCODER.encodeToString(hmac(keys.get(activeKey), payload));
+    }
+
+    /**
+     * @return the verified claims, or empty if the token is malformed, signed with an
+     * unknown key or has a bad signature. Expiry is left to the caller.
+     */
+    public Optional<Claims> verify(String token) {
+        int signatureStart = token.lastIndexOf('.');
+        String[] parts = token.split("\\.");
+        if (parts.length != 4) {
+            return Optional.empty();
+        }
+
+        SecretKeySpec key = keys.get(parts[0]);
+        if (key == null) {
+            return Optional.empty();
+        }
+
+        try {
+            byte[] expected = hmac(key, token.substring(0, signatureStart));
+            if (!MessageDigest.isEqual(expected, DECODER.decode(parts[3]))) {
+                return Optional.empty();
+            }
+            String username = new String(DECODER.decode(parts[1]), StandardCharsets.UTF_8);
+            return Optional.of(new Claims(username, Long.parseLong(parts[2])));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    private byte[] hmac(SecretKeySpec key, String payload) {
+        Mac mac = this.mac.get();
+        try {
+            mac.init(key);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+        return mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public record Claims(String username, long expireAt) {
+    }
+}
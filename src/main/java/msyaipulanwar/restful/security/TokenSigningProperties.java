@@ -0,0 +1,30 @@
+package msyaipulanwar.restful.security;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.auth")
+public class TokenSigningProperties {
+    /**
+     * {@code opaque} stores a random token in users.token, {@code signed} issues HMAC tokens
+     * that are verified without a database lookup.
+     */
+    private String tokenMode = "opaque";
+
+    /**
+     * Key id used to sign new tokens. Older ids stay in {@link #keys} until the tokens
+     * signed with them have expired.
+     */
+    private String activeKey;
+
+    /**
+     * Key ring, key id to base64 encoded HMAC-SHA256 secret.
+     */
+    private Map<String, String> keys = new LinkedHashMap<>();
+}
@@ -0,0 +1,112 @@
+package msyaipulanwar.restful.service;
+
+import msyaipulanwar.restful.entity.Address;
+import msyaipulanwar.restful.entity.Contact;
+import msyaipulanwar.restful.entity.User;
+import msyaipulanwar.restful.entity.Uuids;
+import msyaipulanwar.restful.exception.ApiError;
+import msyaipulanwar.restful.model.AddressResponse;
+import msyaipulanwar.restful.model.CreateAddressRequest;
+import msyaipulanwar.restful.model.UpdateAddressRequest;
+import msyaipulanwar.restful.repository.AddressRepository;
+import msyaipulanwar.restful.repository.ContactRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Service
+public class AddressService {
+    private final AddressRepository addressRepository;
+
+    private final ContactRepository contactRepository;
+
+    private final ValidationService validationService;
+
+    public AddressService(AddressRepository addressRepository, ContactRepository contactRepository,
+                          ValidationService validationService) {
+        this.addressRepository = addressRepository;
+        this.contactRepository = contactRepository;
+        this.validationService = validationService;
+    }
+
+    @Transactional
+    public AddressResponse create(User user, CreateAddressRequest request){
+        validationService.validate(request);
+
+        Contact contact = findContact(user, request.getContactId());
+
+        Address address = new Address();
+        address.setId(Uuids.timeOrdered());
+        address.setContact(contact);
+        address.setStreet(request.getStreet());
+        address.setCity(request.getCity());
+        address.setProvince(request.getProvince());
+        address.setCountry(request.getCountry());
+        address.setPostalCode(request.getPostalCode());
+        addressRepository.save(address);
+
+        return toResponse(address);
+    }
+
+    @Transactional(readOnly = true)
+    public AddressResponse get(User user, String contactId, String addressId){
+        Contact contact = findContact(user, contactId);
+        return toResponse(findAddress(contact, addressId));
+    }
+
+    @Transactional
+    public AddressResponse update(User user, UpdateAddressRequest request){
+        validationService.validate(request);
+
+        Contact contact = findContact(user, request.getContactId());
+        Address address = findAddress(contact, request.getAddressId());
+
+        address.setStreet(request.getStreet());
+        address.setCity(request.getCity());
+        address.setProvince(request.getProvince());
+        address.setCountry(request.getCountry());
+        address.setPostalCode(request.getPostalCode());
+        addressRepository.save(address);
+
+        return toResponse(address);
+    }
+
+    @Transactional
+    public void remove(User user, String contactId, String addressId){
+        Contact contact = findContact(user, contactId);
+        Address address = findAddress(contact, addressId);
+        addressRepository.delete(address);
+    }
+
+    @Transactional(readOnly = true)
+    public List<AddressResponse> list(User user, String contactId){
+        Contact contact = findContact(user, contactId);
+        return addressRepository.findAllByContact(contact).stream()
+                .map(AddressService::toResponse)
+                .toList();
+    }
+
+    private Contact findContact(User user, String contactId){
+        return Uuids.parse(contactId)
+                .flatMap(id -> contactRepository.findFirstByUserAndId(user, id))
+                .orElseThrow(ApiError.CONTACT_NOT_FOUND::exception);
+    }
+
+    private Address findAddress(Contact contact, String addressId){
+        return Uuids.parse(addressId)
+                .flatMap(id -> addressRepository.findFirstByContactAndId(contact, id))
+                .orElseThrow(ApiError.ADDRESS_NOT_FOUND::exception);
+    }
+
+    static AddressResponse toResponse(Address address){
+        return AddressResponse.builder()
+                .id(address.getId().toString())
+                .street(address.getStreet())
+                .city(address.getCity())
+                .province(address.getProvince())
+                .country(address.getCountry())
+                .postalCode(address.getPostalCode())
+                .build();
+    }
+}
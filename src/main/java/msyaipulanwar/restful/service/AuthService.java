@@ -1,14 +1,18 @@
 package msyaipulanwar.restful.service;
 
 import org.springframework.transaction.annotation.Transactional;
+import msyaipulanwar.restful.cache.TokenCache;
 import msyaipulanwar.restful.entity.User;
+import msyaipulanwar.restful.exception.ApiError;
 import msyaipulanwar.restful.model.LoginUserRequest;
 import msyaipulanwar.restful.model.TokenResponse;
 import msyaipulanwar.restful.repository.UserRepository;
-import msyaipulanwar.restful.security.BCrypt;
-import org.springframework.http.HttpStatus;
+import msyaipulanwar.restful.security.PasswordHasher;
+import msyaipulanwar.restful.security.TokenSigner;
+import msyaipulanwar.restful.shard.ShardRouter;
 import org.springframework.stereotype.Service;
-import org.springframework.web.server.ResponseStatusException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.UUID;
 
@@ -17,30 +21,68 @@ public class AuthService {
 
     private final UserRepository userRepository;
     private final ValidationService validationService;
+    private final TokenCache tokenCache;
+    private final TokenSigner tokenSigner;
+    private final PasswordHasher passwordHasher;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
 
-    public AuthService(UserRepository userRepository, ValidationService validationService) {
+    public AuthService(UserRepository userRepository, ValidationService validationService, TokenCache tokenCache,
+                       TokenSigner tokenSigner, PasswordHasher passwordHasher, ShardRouter shardRouter,
+                       PlatformTransactionManager transactionManager) {
         this.userRepository = userRepository;
         this.validationService = validationService;
+        this.tokenCache = tokenCache;
+        this.tokenSigner = tokenSigner;
+        this.passwordHasher = passwordHasher;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
-    @Transactional
+    /**
+     * Not transactional: the user is read in its own short transaction, on the primary so a
+     * fresh registration is seen, and the password is checked and rehashed with no connection
+     * held. Only the token write opens another one.
+     */
     public TokenResponse login(LoginUserRequest request){
         validationService.validate(request);
+        shardRouter.bindUser(request.getUsername());
+
+        User user = transactionTemplate.execute(status -> userRepository.findById(request.getUsername()))
+                .orElseThrow(ApiError.LOGIN_FAILED::exception);
+
+        if(!passwordHasher.check(request.getPassword(), user.getPassword())){
+            throw ApiError.LOGIN_FAILED.exception();
+        }
 
-        User user = userRepository.findById(request.getUsername())
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Username or Password Wrong"));
+        String rehashed = passwordHasher.needsRehash(user.getPassword())
+                ? passwordHasher.hash(request.getPassword()) : null;
 
-        if(!BCrypt.checkpw(request.getPassword(), user.getPassword())){
-            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Username or Password Wrong");
+        if(tokenSigner.isEnabled()){
+            if(rehashed != null){
+                transactionTemplate.executeWithoutResult(status ->
+                        userRepository.updateProfile(user.getUsername(), null, rehashed));
+            }
+            Long expireAt = next30Days();
+            return TokenResponse.builder()
+                    .token(tokenSigner.sign(user.getUsername(), expireAt))
+                    .expireAt(expireAt)
+                    .build();
         }
 
-        user.setToken(UUID.randomUUID().toString());
-        user.setTokenExpired(next30Days());
-        userRepository.save(user);
+        String token = UUID.randomUUID().toString();
+        Long expireAt = next30Days();
+        transactionTemplate.executeWithoutResult(status -> {
+            if(rehashed != null){
+                userRepository.updateProfile(user.getUsername(), null, rehashed);
+            }
+            userRepository.updateToken(user.getUsername(), token, expireAt);
+        });
+        tokenCache.invalidate(user.getToken());
 
         return TokenResponse.builder()
-                .token(user.getToken())
-                .expireAt(user.getTokenExpired())
+                .token(token)
+                .expireAt(expireAt)
                 .build();
     }
 
@@ -50,8 +92,7 @@ public class AuthService {
 
     @Transactional
     public void logout(User user){
-        user.setTokenExpired(null);
-        user.setToken(null);
-        userRepository.save(user);
+        tokenCache.invalidate(user.getToken());
+        userRepository.clearToken(user.getUsername());
     }
 }
@@ -0,0 +1,216 @@
+package msyaipulanwar.restful.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.NullNode;
+import jakarta.validation.ConstraintViolationException;
+import msyaipulanwar.restful.entity.User;
+import msyaipulanwar.restful.model.BatchOperation;
+import msyaipulanwar.restful.model.BatchRequest;
+import msyaipulanwar.restful.model.CreateContactRequest;
+import msyaipulanwar.restful.model.PatchContactRequest;
+import msyaipulanwar.restful.model.UpdateContactRequest;
+import msyaipulanwar.restful.model.UpdateUserRequest;
+import msyaipulanwar.restful.model.WebResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs a list of contact and user operations for one principal, in order. Every operation
+ * goes through the same service method as its single request, so validation, caching and
+ * outbox events behave the same.
+ * <p>
+ * In atomic mode the operations share one transaction and the first failure rolls all of
+ * them back, see {@link BatchFailedException}. In independent mode each operation commits
+ * on its own and failures are reported at their index.
+ */
+@Service
+public class BatchService {
+    private static final Logger log = LoggerFactory.getLogger(BatchService.class);
+
+    public static final String CONTACT_CREATE = "contact.create";
+    public static final String CONTACT_GET = "contact.get";
+    public static final String CONTACT_UPDATE = "contact.update";
+    public static final String CONTACT_PATCH = "contact.patch";
+    public static final String CONTACT_DELETE = "contact.delete";
+    public static final String USER_GET = "user.get";
+    public static final String USER_UPDATE = "user.update";
+
+    private final ContactService contactService;
+
+    private final UserService userService;
+
+    private final ValidationService validationService;
+
+    private final ObjectMapper objectMapper;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int maxOperations;
+
+    public BatchService(ContactService contactService, UserService userService,
+                        ValidationService validationService, ObjectMapper objectMapper,
+                        PlatformTransactionManager transactionManager,
+                        @Value("${app.batch.max-operations:100}") int maxOperations) {
+        this.contactService = contactService;
+        this.userService = userService;
+        this.validationService = validationService;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxOperations = maxOperations;
+    }
+
+    public List<WebResponse<Object>> execute(User principal, BatchRequest request){
+        validationService.validate(request);
+        List<BatchOperation> operations = request.getOperations();
+        if(operations.isEmpty() || operations.size() > maxOperations){
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Batch size must be between 1 and " + maxOperations);
+        }
+
+        // private copy, user.update sets the new name on it for the later operations
+        User user = new User();
+        user.setUsername(principal.getUsername());
+        user.setName(principal.getName());
+        user.setToken(principal.getToken());
+        user.setTokenExpired(principal.getTokenExpired());
+
+        if(request.getMode() == BatchRequest.Mode.INDEPENDENT){
+            List<WebResponse<Object>> results = new ArrayList<>(operations.size());
+            for (BatchOperation operation : operations) {
+                try {
+                    results.add(WebResponse.builder().data(execute(user, operation, null)).build());
+                } catch (ResponseStatusException exception) {
+                    results.add(WebResponse.builder().errors(exception.getReason()).build());
+                }
+            }
+            return results;
+        }
+
+        Map<Integer, PreparedUserUpdate> userUpdates = prepareUserUpdates(operations);
+        return transactionTemplate.execute(status -> {
+            List<WebResponse<Object>> results = new ArrayList<>(operations.size());
+            for (int index = 0; index < operations.size(); index++) {
+                try {
+                    results.add(WebResponse.builder()
+                            .data(execute(user, operations.get(index), userUpdates.get(index)))
+                            .build());
+                } catch (ResponseStatusException exception) {
+                    status.setRollbackOnly();
+                    throw new BatchFailedException(index, exception, operations.size());
+                }
+            }
+            return results;
+        });
+    }
+
+    /**
+     * Hashes the passwords of the user.update operations before the atomic transaction
+     * opens, a hash waiting for the pool must not hold the batch's connection. Operations
+     * that fail here are left to fail again at their index inside the transaction.
+     */
+    private Map<Integer, PreparedUserUpdate> prepareUserUpdates(List<BatchOperation> operations){
+        Map<Integer, PreparedUserUpdate> prepared = new HashMap<>();
+        for (int index = 0; index < operations.size(); index++) {
+            BatchOperation operation = operations.get(index);
+            if (!USER_UPDATE.equals(operation.getOp())) {
+                continue;
+            }
+            try {
+                UpdateUserRequest request = body(operation, UpdateUserRequest.class);
+                validationService.validate(request);
+                prepared.put(index, new PreparedUserUpdate(request, userService.hashPassword(request)));
+            } catch (ConstraintViolationException | ResponseStatusException exception) {
+                log.debug("Batch operation {} not prepared: {}", index, exception.getMessage());
+            }
+        }
+        return prepared;
+    }
+
+    /**
+     * Every failure of a single operation surfaces as a ResponseStatusException, like it
+     * would through the ErrorController.
+     */
+    private Object execute(User user, BatchOperation operation, PreparedUserUpdate userUpdate){
+        try {
+            return switch (operation.getOp()) {
+                case CONTACT_CREATE -> contactService.create(user, body(operation, CreateContactRequest.class));
+                case CONTACT_GET -> contactService.get(user, operation.getId());
+                case CONTACT_UPDATE -> {
+                    UpdateContactRequest request = body(operation, UpdateContactRequest.class);
+                    request.setId(operation.getId());
+                    yield contactService.update(user, request);
+                }
+                case CONTACT_PATCH -> {
+                    PatchContactRequest request = body(operation, PatchContactRequest.class);
+                    request.setId(operation.getId());
+                    request.setVersion(operation.getVersion());
+                    yield contactService.patch(user, request);
+                }
+                case CONTACT_DELETE -> {
+                    contactService.delete(user, operation.getId());
+                    yield "Ok";
+                }
+                case USER_GET -> userService.get(user);
+                case USER_UPDATE -> userUpdate != null
+                        ? userService.update(user, userUpdate.request().getName(), userUpdate.password())
+                        : userService.update(user, body(operation, UpdateUserRequest.class));
+                default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown operation " + operation.getOp());
+            };
+        } catch (ConstraintViolationException exception) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, exception.getMessage());
+        } catch (ResponseStatusException exception) {
+            throw exception;
+        } catch (RuntimeException exception) {
+            log.error("Batch operation {} failed", operation.getOp(), exception);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Operation failed");
+        }
+    }
+
+    private <T> T body(BatchOperation operation, Class<T> type){
+        T value;
+        try {
+            value = objectMapper.treeToValue(operation.getBody() == null ? NullNode.getInstance() : operation.getBody(), type);
+        } catch (JsonProcessingException | IllegalArgumentException exception) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid body for " + operation.getOp());
+        }
+        if (value == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Missing body for " + operation.getOp());
+        }
+        return value;
+    }
+
+    private record PreparedUserUpdate(UpdateUserRequest request, String password) {
+    }
+
+    /**
+     * An atomic batch was rolled back. Carries one result per operation: the failed one
+     * has its error, the ones before it are marked as rolled back and the rest as skipped.
+     */
+    public static class BatchFailedException extends ResponseStatusException {
+        private final transient List<WebResponse<Object>> results;
+
+        BatchFailedException(int index, ResponseStatusException cause, int size) {
+            super(cause.getStatusCode(), "Operation " + index + " failed, batch rolled back", cause);
+            this.results = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                String errors = i < index ? "Rolled back" : i == index ? cause.getReason() : "Not executed";
+                results.add(WebResponse.builder().errors(errors).build());
+            }
+        }
+
+        public List<WebResponse<Object>> getResults() {
+            return results;
+        }
+    }
+}
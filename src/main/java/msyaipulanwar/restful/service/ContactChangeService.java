@@ -0,0 +1,164 @@
+package msyaipulanwar.restful.service;
+
+import msyaipulanwar.restful.entity.Contact;
+import msyaipulanwar.restful.entity.ContactTombstone;
+import msyaipulanwar.restful.entity.User;
+import msyaipulanwar.restful.entity.Uuids;
+import msyaipulanwar.restful.model.ContactChangeResponse;
+import msyaipulanwar.restful.model.ContactChangesRequest;
+import msyaipulanwar.restful.model.CursorPage;
+import msyaipulanwar.restful.repository.ContactRepository;
+import msyaipulanwar.restful.repository.ContactTombstoneRepository;
+import msyaipulanwar.restful.shard.ShardRouter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Change feed over contacts and their tombstones, ordered by (change_seq, id). Cursors have
+ * the form {@code <changeSeq>.<id>.<issuedAt>}.
+ * <p>
+ * Every writing transaction stamps its rows with the user's next change sequence, which is
+ * handed out in commit order (see ContactChangeSequenceRepository#next). A transaction that
+ * commits late therefore never lands behind a cursor that was already given out. The issue
+ * time in the cursor only decides whether the tombstones it needs are still retained.
+ */
+@Service
+public class ContactChangeService {
+    private static final UUID FIRST = new UUID(0, 0);
+
+    /**
+     * Tombstones are kept this much longer than the retention, so a delete that was still
+     * uncommitted when a cursor was issued is not purged while the cursor is accepted.
+     */
+    private static final Duration PURGE_MARGIN = Duration.ofHours(1);
+
+    /**
+     * Unsigned comparison, the order MySQL uses for BINARY(16).
+     */
+    private static final Comparator<UUID> BINARY_ORDER = Comparator
+            .comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+            .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+
+    private static final Comparator<Change> FEED_ORDER = Comparator
+            .comparingLong(Change::changeSeq)
+            .thenComparing(Change::id, BINARY_ORDER);
+
+    private final ContactRepository contactRepository;
+
+    private final ContactTombstoneRepository contactTombstoneRepository;
+
+    private final ValidationService validationService;
+
+    private final Duration retention;
+
+    private final ShardRouter shardRouter;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public ContactChangeService(ContactRepository contactRepository,
+                                ContactTombstoneRepository contactTombstoneRepository,
+                                ValidationService validationService,
+                                @Value("${app.contact.tombstone.retention:30d}") Duration retention,
+                                ShardRouter shardRouter,
+                                PlatformTransactionManager transactionManager) {
+        this.contactRepository = contactRepository;
+        this.contactTombstoneRepository = contactTombstoneRepository;
+        this.validationService = validationService;
+        this.retention = retention;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * The next cursor is always set: after the last change of the page, or where the request
+     * started when nothing changed, with a fresh issue time either way.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<ContactChangeResponse> changes(User user, ContactChangesRequest request){
+        validationService.validate(request);
+
+        long now = System.currentTimeMillis();
+        long since = 0;
+        UUID after = FIRST;
+        if (request.getSince() != null) {
+            String[] cursor = request.getSince().split("\\.", -1);
+            if (cursor.length == 2) {
+                // <updatedAt>.<id> from before the change sequence
+                throw new ResponseStatusException(HttpStatus.GONE, "Cursor expired, sync from the start");
+            }
+            long issuedAt;
+            try {
+                since = Long.parseLong(cursor[0]);
+                issuedAt = Long.parseLong(cursor[2]);
+            } catch (RuntimeException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+            }
+            after = Uuids.parse(cursor[1]).orElseThrow(
+                    () -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor")
+            );
+            if (issuedAt < now - retention.toMillis()) {
+                throw new ResponseStatusException(HttpStatus.GONE, "Cursor expired, sync from the start");
+            }
+        }
+
+        Limit limit = Limit.of(request.getSize() + 1);
+        List<Contact> contacts = contactRepository.findChanges(user, since, after, limit);
+        List<ContactTombstone> tombstones = contactTombstoneRepository.findChanges(user.getUsername(), since, after, limit);
+
+        // both lists are sorted, the first size + 1 of the merge decide the page
+        List<Change> changes = new ArrayList<>(contacts.size() + tombstones.size());
+        for (Contact contact : contacts) {
+            changes.add(new Change(contact.getChangeSeq(), contact.getId(), ContactChangeResponse.builder()
+                    .id(contact.getId().toString())
+                    .updatedAt(contact.getUpdatedAt())
+                    .contact(ContactService.toResponse(contact))
+                    .build()));
+        }
+        for (ContactTombstone tombstone : tombstones) {
+            changes.add(new Change(tombstone.getChangeSeq(), tombstone.getId(), ContactChangeResponse.builder()
+                    .id(tombstone.getId().toString())
+                    .deleted(true)
+                    .updatedAt(tombstone.getDeletedAt())
+                    .build()));
+        }
+        changes.sort(FEED_ORDER);
+
+        List<Change> page = changes.subList(0, Math.min(changes.size(), request.getSize()));
+        if (!page.isEmpty()) {
+            Change last = page.get(page.size() - 1);
+            since = last.changeSeq();
+            after = last.id();
+        }
+        return CursorPage.<ContactChangeResponse>builder()
+                .data(page.stream().map(Change::response).toList())
+                .next(since + "." + after + "." + now)
+                .build();
+    }
+
+    /**
+     * Tombstones older than the retention (plus {@link #PURGE_MARGIN}) are dropped, cursors
+     * issued before the retention get 410.
+     */
+    @Scheduled(fixedDelayString = "${app.contact.tombstone.purge-interval:1h}")
+    public void purgeTombstones(){
+        long before = System.currentTimeMillis() - retention.plus(PURGE_MARGIN).toMillis();
+        shardRouter.onEachShard(() -> transactionTemplate.executeWithoutResult(
+                status -> contactTombstoneRepository.deleteByDeletedAtBefore(before)));
+    }
+
+    private record Change(long changeSeq, UUID id, ContactChangeResponse response) {
+    }
+}
@@ -0,0 +1,104 @@
+package msyaipulanwar.restful.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import msyaipulanwar.restful.entity.User;
+import msyaipulanwar.restful.model.ContactResponse;
+import msyaipulanwar.restful.repository.ContactRepository;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+@Service
+public class ContactExportService {
+    public static final String NDJSON = "ndjson";
+    public static final String CSV = "csv";
+
+    private final ContactRepository contactRepository;
+
+    private final ObjectMapper objectMapper;
+
+    public ContactExportService(ContactRepository contactRepository, ObjectMapper objectMapper) {
+        this.contactRepository = contactRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    public String contentType(String format){
+        return switch (format) {
+            case NDJSON -> "application/x-ndjson";
+            case CSV -> "text/csv";
+            default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported format");
+        };
+    }
+
+    /**
+     * Writes every contact of the user to {@code out} while reading them from a database
+     * cursor, so memory use does not depend on the number of contacts.
+     */
+    @Transactional(readOnly = true)
+    public void export(User user, String format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        try (Stream<ContactResponse> contacts = contactRepository.streamByUser(user)) {
+            if (CSV.equals(format)) {
+                writeCsv(contacts.iterator(), writer);
+            } else {
+                writeNdjson(contacts.iterator(), writer);
+            }
+        }
+        writer.flush();
+    }
+
+    private void writeNdjson(Iterator<ContactResponse> contacts, Writer writer) throws IOException {
+        SequenceWriter sequenceWriter = objectMapper.writerFor(ContactResponse.class)
+                .withRootValueSeparator("\n")
+                .writeValues(writer);
+        if (!contacts.hasNext()) {
+            return;
+        }
+        while (contacts.hasNext()) {
+            sequenceWriter.write(contacts.next());
+        }
+        sequenceWriter.flush();
+        writer.write('\n');
+    }
+
+    private void writeCsv(Iterator<ContactResponse> contacts, Writer writer) throws IOException {
+        writer.write("id,firstName,lastName,phone,email\n");
+        while (contacts.hasNext()) {
+            ContactResponse contact = contacts.next();
+            writeCsvField(writer, contact.getId());
+            writer.write(',');
+            writeCsvField(writer, contact.getFirstName());
+            writer.write(',');
+            writeCsvField(writer, contact.getLastName());
+            writer.write(',');
+            writeCsvField(writer, contact.getPhone());
+            writer.write(',');
+            writeCsvField(writer, contact.getEmail());
+            writer.write('\n');
+        }
+    }
+
+    private void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
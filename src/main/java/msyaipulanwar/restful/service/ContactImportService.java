@@ -0,0 +1,267 @@
+package msyaipulanwar.restful.service;
+
+import jakarta.validation.ConstraintViolationException;
+import msyaipulanwar.restful.entity.Contact;
+import msyaipulanwar.restful.entity.User;
+import msyaipulanwar.restful.entity.Uuids;
+import msyaipulanwar.restful.model.CreateContactRequest;
+import msyaipulanwar.restful.model.ImportContactResponse;
+import msyaipulanwar.restful.outbox.ContactEvents;
+import msyaipulanwar.restful.repository.ContactChangeSequenceRepository;
+import msyaipulanwar.restful.repository.ContactRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Imports contacts from a CSV request body. The body is parsed record by record and valid
+ * rows are committed every {@code chunk-size} rows in their own transaction, so neither
+ * memory nor transaction size grows with the file. The header names the columns
+ * (firstName, lastName, phone, email, other columns such as id are ignored), which means
+ * a file from the export endpoint can be imported as is.
+ */
+@Service
+public class ContactImportService {
+    private static final int MAX_ERRORS = 100;
+    private static final int MAX_RECORD_LENGTH = 4096;
+
+    private final ContactRepository contactRepository;
+
+    private final ContactChangeSequenceRepository contactChangeSequenceRepository;
+
+    private final ValidationService validationService;
+
+    private final ContactEvents contactEvents;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int chunkSize;
+
+    public ContactImportService(ContactRepository contactRepository,
+                                ContactChangeSequenceRepository contactChangeSequenceRepository,
+                                ValidationService validationService,
+                                ContactEvents contactEvents, PlatformTransactionManager transactionManager,
+                                @Value("${app.contact.import.chunk-size:500}") int chunkSize) {
+        this.contactRepository = contactRepository;
+        this.contactChangeSequenceRepository = contactChangeSequenceRepository;
+        this.validationService = validationService;
+        this.contactEvents = contactEvents;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    public ImportContactResponse importCsv(User user, InputStream in) throws IOException {
+        CsvReader reader = new CsvReader(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+
+        List<String> header = reader.next();
+        String username = user.getUsername();
+        if (header == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Empty file");
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim(), i);
+        }
+        if (!columns.containsKey("firstName")) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Missing firstName column");
+        }
+
+        int inserted = 0, rejected = 0;
+        List<String> errors = new ArrayList<>();
+        List<Contact> chunk = new ArrayList<>(chunkSize);
+
+        List<String> record;
+        while ((record = reader.next()) != null) {
+            CreateContactRequest request = CreateContactRequest.builder()
+                    .firstName(column(record, columns, "firstName"))
+                    .lastName(column(record, columns, "lastName"))
+                    .phone(column(record, columns, "phone"))
+                    .email(column(record, columns, "email"))
+                    .build();
+            try {
+                validationService.validate(request);
+            } catch (ConstraintViolationException exception) {
+                rejected++;
+                if (errors.size() < MAX_ERRORS) {
+                    errors.add("line " + reader.getLine() + ": " + exception.getMessage());
+                }
+                continue;
+            }
+
+            chunk.add(toContact(user, request));
+            if (chunk.size() == chunkSize) {
+                inserted += commit(username, chunk);
+            }
+        }
+        inserted += commit(username, chunk);
+
+        return ImportContactResponse.builder()
+                .inserted(inserted)
+                .rejected(rejected)
+                .errors(errors)
+                .build();
+    }
+
+    private int commit(String username, List<Contact> chunk) {
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            long changeSeq = contactChangeSequenceRepository.next(username);
+            chunk.forEach(contact -> contact.setChangeSeq(changeSeq));
+            contactRepository.saveAll(chunk);
+            contactEvents.createdAll(username, chunk.stream().map(ContactService::toResponse).toList(), changeSeq);
+        });
+        int size = chunk.size();
+        chunk.clear();
+        return size;
+    }
+
+    private static String column(List<String> record, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= record.size() || record.get(index).isEmpty()) {
+            return null;
+        }
+        return record.get(index);
+    }
+
+    private static Contact toContact(User user, CreateContactRequest request) {
+        Contact contact = new Contact();
+        contact.setId(Uuids.timeOrdered());
+        contact.setFirstName(request.getFirstName());
+        contact.setLastName(request.getLastName());
+        contact.setEmail(request.getEmail());
+        contact.setPhone(request.getPhone());
+        contact.setUser(user);
+        return contact;
+    }
+
+    /**
+     * Minimal incremental RFC 4180 reader: quoted fields, doubled quotes and line breaks
+     * inside quotes. Only the current record is held in memory. A leading UTF-8 byte order
+     * mark and empty lines are skipped, and records are reported by the physical line they
+     * start on.
+     */
+    private static class CsvReader {
+        private final Reader reader;
+        private final StringBuilder field = new StringBuilder();
+        private int physicalLine = 1;
+        private int line;
+        private int peeked = -2;
+        private boolean started;
+
+        CsvReader(Reader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * @return the line the last record started on
+         */
+        int getLine() {
+            return line;
+        }
+
+        private int read() throws IOException {
+            if (peeked != -2) {
+                int c = peeked;
+                peeked = -2;
+                return c;
+            }
+            return reader.read();
+        }
+
+        /**
+         * Consumes the line break starting with {@code c}, CRLF counting as one.
+         */
+        private void lineBreak(int c) throws IOException {
+            if (c == '\r') {
+                int n = read();
+                if (n != '\n') {
+                    peeked = n;
+                }
+            }
+            physicalLine++;
+        }
+
+        List<String> next() throws IOException {
+            int c = read();
+            if (!started) {
+                started = true;
+                if (c == '\uFEFF') {
+                    c = read();
+                }
+            }
+            while (c == '\r' || c == '\n') {
+                lineBreak(c);
+                c = read();
+            }
+            if (c == -1) {
+                return null;
+            }
+            line = physicalLine;
+
+            List<String> record = new ArrayList<>();
+            boolean quoted = false;
+            int length = 0;
+            field.setLength(0);
+            while (true) {
+                if (++length > MAX_RECORD_LENGTH) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Line " + line + " is too long");
+                }
+                if (quoted) {
+                    if (c == -1) {
+                        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unterminated quote at line " + line);
+                    }
+                    if (c == '"') {
+                        int n = read();
+                        if (n == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            peeked = n;
+                        }
+                    } else {
+                        // line breaks inside quotes are data, CRLF is counted at its LF
+                        if (c == '\n') {
+                            physicalLine++;
+                        } else if (c == '\r') {
+                            peeked = read();
+                            if (peeked != '\n') {
+                                physicalLine++;
+                            }
+                        }
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.isEmpty()) {
+                    quoted = true;
+                } else if (c == ',') {
+                    record.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\r' || c == '\n' || c == -1) {
+                    if (c != -1) {
+                        lineBreak(c);
+                    }
+                    record.add(field.toString());
+                    return record;
+                } else {
+                    field.append((char) c);
+                }
+                c = read();
+            }
+        }
+    }
+}
@@ -1,28 +1,77 @@
 package msyaipulanwar.restful.service;
 
+import msyaipulanwar.restful.cache.ContactCache;
+import msyaipulanwar.restful.model.PatchContactRequest;
+import msyaipulanwar.restful.model.SearchContactRequest;
 import msyaipulanwar.restful.model.UpdateContactRequest;
+import msyaipulanwar.restful.model.WebResponse;
+import msyaipulanwar.restful.outbox.ContactEvents;
+import jakarta.validation.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import msyaipulanwar.restful.entity.Contact;
+import msyaipulanwar.restful.entity.ContactTombstone;
 import msyaipulanwar.restful.entity.User;
+import msyaipulanwar.restful.entity.Uuids;
+import msyaipulanwar.restful.exception.ApiError;
 import msyaipulanwar.restful.model.ContactResponse;
 import msyaipulanwar.restful.model.CreateContactRequest;
+import msyaipulanwar.restful.model.CursorPage;
+import msyaipulanwar.restful.repository.AddressRepository;
+import msyaipulanwar.restful.repository.ContactChangeSequenceRepository;
 import msyaipulanwar.restful.repository.ContactRepository;
+import msyaipulanwar.restful.repository.ContactTombstoneRepository;
+import msyaipulanwar.restful.repository.LikePatterns;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.UUID;
 
 @Service
 public class ContactService {
+    private static final UUID FIRST = new UUID(0, 0);
+
     private final ContactRepository contactRepository;
 
+    private final AddressRepository addressRepository;
+
+    private final ContactTombstoneRepository contactTombstoneRepository;
+
+    private final ContactChangeSequenceRepository contactChangeSequenceRepository;
+
     private final ValidationService validationService;
 
-    public ContactService(ContactRepository contactRepository, ValidationService validationService) {
+    private final ContactCache contactCache;
+
+    private final ContactEvents contactEvents;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final int bulkMaxSize;
+
+    public ContactService(ContactRepository contactRepository, AddressRepository addressRepository,
+                          ContactTombstoneRepository contactTombstoneRepository,
+                          ContactChangeSequenceRepository contactChangeSequenceRepository,
+                          ValidationService validationService, ContactCache contactCache,
+                          ContactEvents contactEvents, PlatformTransactionManager transactionManager,
+                          @Value("${app.contact.bulk.max-size:1000}") int bulkMaxSize) {
         this.contactRepository = contactRepository;
+        this.addressRepository = addressRepository;
+        this.contactTombstoneRepository = contactTombstoneRepository;
+        this.contactChangeSequenceRepository = contactChangeSequenceRepository;
         this.validationService = validationService;
+        this.contactCache = contactCache;
+        this.contactEvents = contactEvents;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        this.bulkMaxSize = bulkMaxSize;
     }
 
 
@@ -30,60 +79,213 @@ public class ContactService {
     public ContactResponse create (User user, CreateContactRequest request){
         validationService.validate(request);
 
+        long changeSeq = contactChangeSequenceRepository.next(user.getUsername());
+        Contact contact = toContact(user, request, changeSeq);
+        contactRepository.save(contact);
+
+        ContactResponse response = toResponse(contact);
+        contactEvents.created(user.getUsername(), response, changeSeq);
+        return response;
+    }
+
+    /**
+     * Inserts every valid request in one transaction; with hibernate.jdbc.batch_size the
+     * inserts go out as JDBC batches. Invalid items get an error result at the same index
+     * and do not fail the rest.
+     */
+    @Transactional
+    public List<WebResponse<ContactResponse>> createBulk(User user, List<CreateContactRequest> requests){
+        if(requests.isEmpty() || requests.size() > bulkMaxSize){
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bulk size must be between 1 and " + bulkMaxSize);
+        }
+
+        List<WebResponse<ContactResponse>> results = new ArrayList<>(requests.size());
+        List<Contact> contacts = new ArrayList<>(requests.size());
+        long changeSeq = contactChangeSequenceRepository.next(user.getUsername());
+        for (CreateContactRequest request : requests) {
+            try {
+                validationService.validate(request);
+            } catch (ConstraintViolationException exception) {
+                results.add(WebResponse.<ContactResponse>builder().errors(exception.getMessage()).build());
+                continue;
+            }
+
+            Contact contact = toContact(user, request, changeSeq);
+            contacts.add(contact);
+            results.add(null);
+        }
+
+        contactRepository.saveAll(contacts);
+
+        // mapped after saveAll, which sets the versions the responses and events carry
+        List<ContactResponse> created = contacts.stream().map(ContactService::toResponse).toList();
+        Iterator<ContactResponse> responses = created.iterator();
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i) == null) {
+                results.set(i, WebResponse.<ContactResponse>builder().data(responses.next()).build());
+            }
+        }
+        contactEvents.createdAll(user.getUsername(), created, changeSeq);
+        return results;
+    }
+
+    private Contact toContact(User user, CreateContactRequest request, long changeSeq){
         Contact contact = new Contact();
-        contact.setId(UUID.randomUUID().toString());
+        contact.setId(Uuids.timeOrdered());
         contact.setFirstName(request.getFirstName());
         contact.setLastName(request.getLastName());
         contact.setEmail(request.getEmail());
         contact.setPhone(request.getPhone());
         contact.setUser(user);
-        contactRepository.save(contact);
-
-        return toResponse(contact);
+        contact.setChangeSeq(changeSeq);
+        return contact;
     }
 
-    private ContactResponse toResponse(Contact contact){
+    static ContactResponse toResponse(Contact contact){
         return ContactResponse.builder()
-                .id(contact.getId())
+                .id(contact.getId().toString())
                 .firstName(contact.getFirstName())
                 .lastName(contact.getLastName())
                 .email(contact.getEmail())
                 .phone(contact.getPhone())
+                .version(contact.getVersion())
                 .build();
     }
 
-    @Transactional(readOnly = true)
+    private ContactResponse toResponseWithAddresses(Contact contact){
+        ContactResponse response = toResponse(contact);
+        response.setAddresses(contact.getAddresses().stream()
+                .map(AddressService::toResponse)
+                .toList());
+        return response;
+    }
+
+    /**
+     * Read from the database, not the contact cache: a 304 must not confirm a version that
+     * another node has already replaced.
+     */
+    public Long getVersion(User user, String id){
+        return getVersion(user, contactId(id));
+    }
+
+    private Long getVersion(User user, UUID id){
+        return readOnlyTransaction.execute(status -> contactRepository.findVersionByUserAndId(user, id))
+                .orElseThrow(ApiError.CONTACT_NOT_FOUND::exception);
+    }
+
+    /**
+     * The cache is checked before any transaction, a hit takes no connection. Only a miss
+     * opens the read-only transaction for the load, or joins the caller's.
+     */
     public ContactResponse get(User user, String id){
-        Contact contact  = contactRepository.findFirstByUserAndId(user, id).orElseThrow(
-                () -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Contact not found")
-        );
-        return toResponse(contact);
+        UUID contactId = contactId(id);
+        return contactCache.get(user.getUsername(), contactId,
+                () -> readOnlyTransaction.execute(status -> load(user, contactId)));
+    }
+
+    /**
+     * Contact and addresses from one query. Not cached, address writes do not touch the
+     * contact cache.
+     */
+    @Transactional(readOnly = true)
+    public ContactResponse getWithAddresses(User user, String id){
+        Contact contact = contactRepository.findWithAddressesByUserAndId(user, contactId(id)).orElseThrow(ApiError.CONTACT_NOT_FOUND::exception);
+        return toResponseWithAddresses(contact);
+    }
+
+    private ContactResponse load(User user, UUID id){
+        return contactRepository.findResponseByUserAndId(user, id).orElseThrow(ApiError.CONTACT_NOT_FOUND::exception);
     }
     
     @Transactional
     public ContactResponse update(User user, UpdateContactRequest request){
         validationService.validate(request);
 
-        Contact contact = contactRepository.findFirstByUserAndId(user, request.getId()).orElseThrow(
-                () -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Contact not found")
-        );
+        UUID id = contactId(request.getId());
+        contactCache.invalidate(user.getUsername(), id);
+        long changeSeq = contactChangeSequenceRepository.next(user.getUsername());
+        int updated = contactRepository.updateByUserAndId(user, id, System.currentTimeMillis(), changeSeq,
+                request.getFirstName(), request.getLastName(), request.getPhone(), request.getEmail());
+        if(updated == 0){
+            throw ApiError.CONTACT_NOT_FOUND.exception();
+        }
 
-        contact.setFirstName(request.getFirstName());
-        contact.setLastName(request.getLastName());
-        contact.setEmail(request.getEmail());
-        contact.setPhone(request.getPhone());
-        contactRepository.save(contact);
+        // read back like patch, so the event and the response carry the new version
+        ContactResponse response = load(user, id);
+        contactEvents.updated(user.getUsername(), response, changeSeq);
+        return response;
+    }
 
-        return toResponse(contact);
+    /**
+     * Writes only the supplied fields with a single UPDATE. A version mismatch is reported
+     * as 412 so concurrent editors do not overwrite each other.
+     */
+    @Transactional
+    public ContactResponse patch(User user, PatchContactRequest request){
+        validationService.validate(request);
+
+        UUID id = contactId(request.getId());
+        contactCache.invalidate(user.getUsername(), id);
+        long changeSeq = contactChangeSequenceRepository.next(user.getUsername());
+        int updated = contactRepository.patchByUserAndId(user, id, request.getVersion(), System.currentTimeMillis(),
+                changeSeq, request.getFirstName(), request.getLastName(), request.getPhone(), request.getEmail());
+        if(updated == 0){
+            getVersion(user, id);
+            throw ApiError.CONTACT_MODIFIED.exception();
+        }
+
+        ContactResponse response = load(user, id);
+        contactEvents.updated(user.getUsername(), response, changeSeq);
+        return response;
     }
 
     @Transactional
     public void delete(User user, String id){
+        UUID contactId = contactId(id);
+        // taken before the row locks, in the same order as update and patch
+        long changeSeq = contactChangeSequenceRepository.next(user.getUsername());
+        contactCache.invalidate(user.getUsername(), contactId);
+        addressRepository.deleteAllByUserAndContactId(user, contactId);
+        int deleted = contactRepository.deleteByUserAndId(user, contactId);
+        if(deleted == 0){
+            throw ApiError.CONTACT_NOT_FOUND.exception();
+        }
 
-        Contact contact = contactRepository.findFirstByUserAndId(user, id).orElseThrow(
-                () -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Contact not found")
+        contactTombstoneRepository.save(new ContactTombstone(contactId, user.getUsername(), System.currentTimeMillis(), changeSeq));
+        contactEvents.deleted(user.getUsername(), contactId, changeSeq);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<ContactResponse> search(User user, SearchContactRequest request){
+        validationService.validate(request);
+
+        UUID after = request.getAfter() == null ? FIRST : Uuids.parse(request.getAfter()).orElseThrow(
+                () -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor")
         );
+        List<Contact> contacts = contactRepository.search(user,
+                after,
+                LikePatterns.prefix(request.getName()),
+                LikePatterns.prefix(request.getEmail()),
+                LikePatterns.prefix(request.getPhone()),
+                Limit.of(request.getSize() + 1));
+
+        // addresses are batch fetched (see Contact#addresses), not loaded per contact
+        boolean hasNext = contacts.size() > request.getSize();
+        List<ContactResponse> responses = contacts.stream()
+                .limit(request.getSize())
+                .map(request.isIncludeAddresses() ? this::toResponseWithAddresses : ContactService::toResponse)
+                .toList();
+
+        return CursorPage.<ContactResponse>builder()
+                .data(responses)
+                .next(hasNext ? responses.get(responses.size() - 1).getId() : null)
+                .build();
+    }
 
-        contactRepository.delete(contact);
+    /**
+     * Ids that are not UUIDs cannot exist, so they are reported like any unknown contact.
+     */
+    private UUID contactId(String id){
+        return Uuids.parse(id).orElseThrow(ApiError.CONTACT_NOT_FOUND::exception);
     }
 }
@@ -0,0 +1,288 @@
+package msyaipulanwar.restful.service;
+
+import io.r2dbc.spi.ConnectionFactory;
+import msyaipulanwar.restful.entity.AddressRow;
+import msyaipulanwar.restful.entity.ContactRow;
+import msyaipulanwar.restful.entity.User;
+import msyaipulanwar.restful.entity.Uuids;
+import msyaipulanwar.restful.exception.ApiError;
+import msyaipulanwar.restful.model.AddressResponse;
+import msyaipulanwar.restful.model.ContactResponse;
+import msyaipulanwar.restful.model.CreateContactRequest;
+import msyaipulanwar.restful.model.CursorPage;
+import msyaipulanwar.restful.model.PatchContactRequest;
+import msyaipulanwar.restful.model.SearchContactRequest;
+import msyaipulanwar.restful.model.UpdateContactRequest;
+import msyaipulanwar.restful.outbox.ReactiveContactEvents;
+import msyaipulanwar.restful.repository.AddressRowRepository;
+import msyaipulanwar.restful.repository.ContactRepository;
+import msyaipulanwar.restful.repository.ContactRowRepository;
+import msyaipulanwar.restful.repository.LikePatterns;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.convert.R2dbcConverter;
+import org.springframework.http.HttpStatus;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Non-blocking {@link ContactService} for the reactive profile, on R2DBC. Responses, errors
+ * and outbox events are the same as in ContactService. Reads skip the contact cache, which
+ * only fronts the JPA reads.
+ * <p>
+ * Writes run in a reactive transaction of their own; the R2DBC transaction manager is not
+ * a bean so the JPA one stays the only {@code @Transactional} candidate.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveContactService {
+    private static final UUID FIRST = new UUID(0, 0);
+
+    private final ContactRowRepository contactRowRepository;
+
+    private final AddressRowRepository addressRowRepository;
+
+    private final DatabaseClient databaseClient;
+
+    private final ValidationService validationService;
+
+    private final ReactiveContactEvents contactEvents;
+
+    private final TransactionalOperator transactionalOperator;
+
+    private final R2dbcConverter converter;
+
+    public ReactiveContactService(ContactRowRepository contactRowRepository, AddressRowRepository addressRowRepository,
+                                  DatabaseClient databaseClient, ValidationService validationService,
+                                  ReactiveContactEvents contactEvents, ConnectionFactory connectionFactory,
+                                  R2dbcConverter converter) {
+        this.contactRowRepository = contactRowRepository;
+        this.addressRowRepository = addressRowRepository;
+        this.databaseClient = databaseClient;
+        this.validationService = validationService;
+        this.contactEvents = contactEvents;
+        this.transactionalOperator = TransactionalOperator.create(new R2dbcTransactionManager(connectionFactory));
+        this.converter = converter;
+    }
+
+    public Mono<ContactResponse> create(User user, CreateContactRequest request){
+        return Mono.defer(() -> {
+                    validationService.validate(request);
+                    return contactRowRepository.nextChangeSeq(user.getUsername());
+                })
+                .flatMap(changeSeq -> {
+                    ContactRow contact = ContactRow.forInsert(Uuids.timeOrdered(), user.getUsername(),
+                            System.currentTimeMillis(), changeSeq);
+                    contact.setFirstName(request.getFirstName());
+                    contact.setLastName(request.getLastName());
+                    contact.setEmail(request.getEmail());
+                    contact.setPhone(request.getPhone());
+                    return contactRowRepository.save(contact)
+                            .map(ReactiveContactService::toResponse)
+                            .flatMap(response -> contactEvents.created(user.getUsername(), response, changeSeq)
+                                    .thenReturn(response));
+                })
+                .as(transactionalOperator::transactional);
+    }
+
+    public Mono<Long> getVersion(User user, String id){
+        return contactId(id)
+                .flatMap(contactId -> contactRowRepository.findVersionByUsernameAndId(user.getUsername(), contactId))
+                .switchIfEmpty(notFound());
+    }
+
+    public Mono<ContactResponse> get(User user, String id){
+        return contactId(id)
+                .flatMap(contactId -> contactRowRepository.findFirstByUsernameAndId(user.getUsername(), contactId))
+                .switchIfEmpty(notFound())
+                .map(ReactiveContactService::toResponse);
+    }
+
+    public Mono<ContactResponse> getWithAddresses(User user, String id){
+        return get(user, id).flatMap(contact -> withAddresses(List.of(contact))).map(contacts -> contacts.get(0));
+    }
+
+    public Mono<ContactResponse> update(User user, UpdateContactRequest request){
+        return Mono.defer(() -> {
+                    validationService.validate(request);
+                    return contactId(request.getId());
+                })
+                .flatMap(id -> contactRowRepository.nextChangeSeq(user.getUsername())
+                        .flatMap(changeSeq -> contactRowRepository.updateByUsernameAndId(user.getUsername(), id,
+                                System.currentTimeMillis(), changeSeq,
+                                request.getFirstName(), request.getLastName(), request.getPhone(), request.getEmail())
+                                .flatMap(updated -> updated == 0 ? ReactiveContactService.<ContactResponse>notFound() : get(user, id.toString()))
+                                .flatMap(response -> contactEvents.updated(user.getUsername(), response, changeSeq)
+                                        .thenReturn(response))))
+                .as(transactionalOperator::transactional);
+    }
+
+    public Mono<ContactResponse> patch(User user, PatchContactRequest request){
+        return Mono.defer(() -> {
+                    validationService.validate(request);
+                    return contactId(request.getId());
+                })
+                .flatMap(id -> contactRowRepository.nextChangeSeq(user.getUsername())
+                        .flatMap(changeSeq -> contactRowRepository.patchByUsernameAndId(user.getUsername(), id,
+                                request.getVersion(), System.currentTimeMillis(), changeSeq,
+                                request.getFirstName(), request.getLastName(), request.getPhone(), request.getEmail())
+                                .flatMap(updated -> updated == 0
+                                        ? getVersion(user, id.toString()).then(Mono.<ContactResponse>error(ApiError.CONTACT_MODIFIED::exception))
+                                        : get(user, id.toString()))
+                                .flatMap(response -> contactEvents.updated(user.getUsername(), response, changeSeq)
+                                        .thenReturn(response))))
+                .as(transactionalOperator::transactional);
+    }
+
+    public Mono<Void> delete(User user, String id){
+        // the change sequence is taken before the row locks, in the same order as update and patch
+        return contactId(id)
+                .flatMap(contactId -> contactRowRepository.nextChangeSeq(user.getUsername())
+                        .flatMap(changeSeq -> databaseClient.sql("""
+                                        delete from addresses
+                                        where contact_id = :id
+                                          and contact_id in (select c.id from contacts c where c.username = :username)
+                                        """)
+                                .bind("id", Uuids.toBytes(contactId))
+                                .bind("username", user.getUsername())
+                                .then()
+                                .then(contactRowRepository.deleteByUsernameAndId(user.getUsername(), contactId))
+                                .flatMap(deleted -> deleted == 0
+                                        ? Mono.<Void>error(ApiError.CONTACT_NOT_FOUND::exception)
+                                        : tombstone(user, contactId, changeSeq))
+                                .then(contactEvents.deleted(user.getUsername(), contactId, changeSeq))))
+                .as(transactionalOperator::transactional);
+    }
+
+    public Mono<CursorPage<ContactResponse>> search(User user, SearchContactRequest request){
+        return Mono.defer(() -> {
+                    validationService.validate(request);
+
+                    UUID after = request.getAfter() == null ? FIRST : Uuids.parse(request.getAfter()).orElseThrow(
+                            () -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor")
+                    );
+                    return findPage(user.getUsername(),
+                                    after,
+                                    LikePatterns.prefix(request.getName()),
+                                    LikePatterns.prefix(request.getEmail()),
+                                    LikePatterns.prefix(request.getPhone()),
+                                    request.getSize() + 1)
+                            .map(ReactiveContactService::toResponse)
+                            .collectList();
+                })
+                .flatMap(contacts -> {
+                    boolean hasNext = contacts.size() > request.getSize();
+                    List<ContactResponse> page = hasNext ? contacts.subList(0, request.getSize()) : contacts;
+                    Mono<List<ContactResponse>> responses = request.isIncludeAddresses() ? withAddresses(page) : Mono.just(page);
+                    return responses.map(content -> CursorPage.<ContactResponse>builder()
+                            .data(content)
+                            .next(hasNext ? content.get(content.size() - 1).getId() : null)
+                            .build());
+                });
+    }
+
+    /**
+     * Keyset page on idx_contacts_username_id, like {@link ContactRepository#search}: only the
+     * supplied filters are in the WHERE clause, since r2dbc-mysql prepares statements on the
+     * server where {@code :name is null or ...} would not fold away.
+     */
+    private Flux<ContactRow> findPage(String username, UUID after, String name, String email, String phone, int limit){
+        StringBuilder sql = new StringBuilder("select * from contacts where username = :username and id > :after");
+        if (name != null) {
+            sql.append(" and (first_name like :name escape '!' or last_name like :name escape '!')");
+        }
+        if (email != null) {
+            sql.append(" and email like :email escape '!'");
+        }
+        if (phone != null) {
+            sql.append(" and phone like :phone escape '!'");
+        }
+        sql.append(" order by id asc limit :limit");
+
+        DatabaseClient.GenericExecuteSpec statement = databaseClient.sql(sql.toString())
+                .bind("username", username)
+                .bind("after", Uuids.toBytes(after))
+                .bind("limit", limit);
+        if (name != null) {
+            statement = statement.bind("name", name);
+        }
+        if (email != null) {
+            statement = statement.bind("email", email);
+        }
+        if (phone != null) {
+            statement = statement.bind("phone", phone);
+        }
+        return statement.map((row, metadata) -> converter.read(ContactRow.class, row, metadata)).all();
+    }
+
+    /**
+     * Fills the addresses of every contact with one query.
+     */
+    private Mono<List<ContactResponse>> withAddresses(List<ContactResponse> contacts){
+        if (contacts.isEmpty()) {
+            return Mono.just(contacts);
+        }
+        List<UUID> ids = contacts.stream().map(contact -> UUID.fromString(contact.getId())).toList();
+        return addressRowRepository.findAllByContactIds(ids)
+                .collect(Collectors.groupingBy(AddressRow::getContactId,
+                        Collectors.mapping(ReactiveContactService::toResponse, Collectors.toList())))
+                .map(addresses -> {
+                    contacts.forEach(contact -> contact.setAddresses(
+                            addresses.getOrDefault(UUID.fromString(contact.getId()), List.of())));
+                    return contacts;
+                });
+    }
+
+    private Mono<Void> tombstone(User user, UUID contactId, long changeSeq){
+        return databaseClient.sql("""
+                        insert into contact_tombstones (id, username, deleted_at, change_seq)
+                        values (:id, :username, :deletedAt, :changeSeq)
+                        """)
+                .bind("id", Uuids.toBytes(contactId))
+                .bind("username", user.getUsername())
+                .bind("deletedAt", System.currentTimeMillis())
+                .bind("changeSeq", changeSeq)
+                .then();
+    }
+
+    private static ContactResponse toResponse(ContactRow contact){
+        return ContactResponse.builder()
+                .id(contact.getId().toString())
+                .firstName(contact.getFirstName())
+                .lastName(contact.getLastName())
+                .email(contact.getEmail())
+                .phone(contact.getPhone())
+                .version(contact.getVersion())
+                .build();
+    }
+
+    private static AddressResponse toResponse(AddressRow address){
+        return AddressResponse.builder()
+                .id(address.getId().toString())
+                .street(address.getStreet())
+                .city(address.getCity())
+                .province(address.getProvince())
+                .country(address.getCountry())
+                .postalCode(address.getPostalCode())
+                .build();
+    }
+
+    /**
+     * Ids that are not UUIDs cannot exist, so they are reported like any unknown contact.
+     */
+    private Mono<UUID> contactId(String id){
+        return Mono.justOrEmpty(Uuids.parse(id)).switchIfEmpty(notFound());
+    }
+
+    private static <T> Mono<T> notFound(){
+        return Mono.error(ApiError.CONTACT_NOT_FOUND::exception);
+    }
+}
@@ -1,14 +1,18 @@
 package msyaipulanwar.restful.service;
 
 import org.springframework.transaction.annotation.Transactional;
+import msyaipulanwar.restful.cache.TokenCache;
 import msyaipulanwar.restful.entity.User;
 import msyaipulanwar.restful.model.RegisterUserRequest;
 import msyaipulanwar.restful.model.UpdateUserRequest;
 import msyaipulanwar.restful.model.UserResponse;
 import msyaipulanwar.restful.repository.UserRepository;
-import msyaipulanwar.restful.security.BCrypt;
+import msyaipulanwar.restful.security.PasswordHasher;
+import msyaipulanwar.restful.shard.ShardRouter;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.Objects;
@@ -19,27 +23,50 @@ public class UserService {
 
     private final ValidationService validationService;
 
-    public UserService(UserRepository userRepository, ValidationService validationService) {
+    private final TokenCache tokenCache;
+
+    private final PasswordHasher passwordHasher;
+
+    private final ShardRouter shardRouter;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public UserService(UserRepository userRepository, ValidationService validationService, TokenCache tokenCache,
+                       PasswordHasher passwordHasher, ShardRouter shardRouter,
+                       PlatformTransactionManager transactionManager) {
         this.userRepository = userRepository;
         this.validationService = validationService;
+        this.tokenCache = tokenCache;
+        this.passwordHasher = passwordHasher;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
-    @Transactional
+    /**
+     * The password is hashed before the transaction, a hash waiting for the pool must not
+     * hold a connection.
+     */
     public void register(RegisterUserRequest request){
         //Validasi Request
         validationService.validate(request);
+        shardRouter.bindUser(request.getUsername());
 
-        //Cek apakah user telah terdaftar
+        //Cek apakah user telah terdaftar, sebelum hashing yang mahal
         if(userRepository.existsById(request.getUsername())){
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Username already registered");
         }
 
         User user = new User();
         user.setUsername(request.getUsername());
-        user.setPassword(BCrypt.hashpw(request.getPassword(), BCrypt.gensalt()));
+        user.setPassword(passwordHasher.hash(request.getPassword()));
         user.setName(request.getName());
 
-        userRepository.save(user);
+        transactionTemplate.executeWithoutResult(status -> {
+            if(userRepository.existsById(request.getUsername())){
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Username already registered");
+            }
+            userRepository.save(user);
+        });
     }
 
     public UserResponse get(User user){
@@ -49,16 +76,36 @@ public class UserService {
                 .build();
     }
 
-    @Transactional
+    /**
+     * Like register, hashes the new password before opening the write transaction.
+     */
     public UserResponse update(User user, UpdateUserRequest request){
         validationService.validate(request);
 
-        if(Objects.nonNull(request.getName())){
-            user.setName(request.getName());
-        }
+        String password = hashPassword(request);
+        return transactionTemplate.execute(status -> update(user, request.getName(), password));
+    }
+
+    /**
+     * @return the hash of the requested password, null if the password is not changed
+     */
+    public String hashPassword(UpdateUserRequest request){
+        return Objects.nonNull(request.getPassword()) ? passwordHasher.hash(request.getPassword()) : null;
+    }
+
+    /**
+     * Writes a validated update whose password was hashed with {@link #hashPassword}, for
+     * callers that already hold a transaction.
+     */
+    @Transactional
+    public UserResponse update(User user, String name, String password){
+        //User dari resolver tidak managed, jadi update langsung kolom yang berubah saja
+        userRepository.updateProfile(user.getUsername(), name, password);
+        // signed tokens are cached under themselves, not under the stored token
+        tokenCache.invalidateUser(user.getUsername());
 
-        if(Objects.nonNull(request.getPassword())){
-            user.setPassword(BCrypt.hashpw(request.getPassword(), BCrypt.gensalt()));
+        if(Objects.nonNull(name)){
+            user.setName(name);
         }
 
         return UserResponse.builder()
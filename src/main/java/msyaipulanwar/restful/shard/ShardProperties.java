@@ -0,0 +1,41 @@
+package msyaipulanwar.restful.shard;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.shard")
+public class ShardProperties {
+    /**
+     * Spread users over {@link #datasources} instead of using spring.datasource.
+     */
+    private boolean enabled;
+
+    /**
+     * Points per shard on the hash ring. More points give a more even spread.
+     */
+    private int virtualNodes = 128;
+
+    /**
+     * Shard name to connection settings. Names are hashed onto the ring, so renaming a
+     * shard moves its users.
+     */
+    private Map<String, DataSourceSettings> datasources = new LinkedHashMap<>();
+
+    @Getter
+    @Setter
+    public static class DataSourceSettings {
+        private String url;
+
+        private String username;
+
+        private String password;
+
+        private int maximumPoolSize = 50;
+    }
+}
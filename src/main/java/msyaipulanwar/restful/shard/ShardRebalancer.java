@@ -0,0 +1,123 @@
+package msyaipulanwar.restful.shard;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.ResultSetMetaData;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Moves users whose ring position changed, after shards were added or removed, to their new
+ * shard. Meant to run offline, with the API stopped: for each user the rows are first copied
+ * to the target in one transaction and then deleted from the source in another, so a crash
+ * in between leaves duplicates that the next run cleans up ({@code INSERT IGNORE} skips rows
+ * that were already copied).
+ * <p>
+ * Pending outbox events stay where they were written, every shard's outbox is drained.
+ */
+public class ShardRebalancer {
+    private static final Logger log = LoggerFactory.getLogger(ShardRebalancer.class);
+
+    private static final String CONTACT_IDS = "(select id from contacts where username = ?)";
+
+    /**
+     * Copy order, parents first. Deletes run in reverse.
+     */
+    private static final List<String[]> TABLES = List.of(
+            new String[]{"users", "username = ?"},
+            new String[]{"contact_change_sequences", "username = ?"},
+            new String[]{"contacts", "username = ?"},
+            new String[]{"addresses", "contact_id in " + CONTACT_IDS},
+            new String[]{"contact_tombstones", "username = ?"});
+
+    private final Map<String, DataSource> shards;
+
+    private final ShardRouter shardRouter;
+
+    private final int batchSize;
+
+    public ShardRebalancer(Map<String, DataSource> shards, ShardRouter shardRouter, int batchSize) {
+        this.shards = shards;
+        this.shardRouter = shardRouter;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @param dryRun only count the users that would move
+     * @return the number of users moved, or that would be moved
+     */
+    public int rebalance(boolean dryRun) {
+        int moved = 0;
+        for (Map.Entry<String, DataSource> source : shards.entrySet()) {
+            JdbcTemplate sourceJdbc = new JdbcTemplate(source.getValue());
+            for (String username : sourceJdbc.queryForList("select username from users", String.class)) {
+                String target = shardRouter.shardFor(username);
+                if (target.equals(source.getKey())) {
+                    continue;
+                }
+                log.info("Moving user {} from shard {} to {}{}", username, source.getKey(), target, dryRun ? " (dry run)" : "");
+                if (!dryRun) {
+                    move(username, source.getValue(), shards.get(target));
+                }
+                moved++;
+            }
+        }
+        return moved;
+    }
+
+    private void move(String username, DataSource source, DataSource target) {
+        JdbcTemplate sourceJdbc = new JdbcTemplate(source);
+        JdbcTemplate targetJdbc = new JdbcTemplate(target);
+
+        new TransactionTemplate(new DataSourceTransactionManager(target)).executeWithoutResult(status -> {
+            for (String[] table : TABLES) {
+                copy(sourceJdbc, targetJdbc, table[0], table[1], username);
+            }
+        });
+
+        List<String[]> reversed = new ArrayList<>(TABLES);
+        Collections.reverse(reversed);
+        new TransactionTemplate(new DataSourceTransactionManager(source)).executeWithoutResult(status -> {
+            for (String[] table : reversed) {
+                sourceJdbc.update("delete from " + table[0] + " where " + table[1], username);
+            }
+        });
+    }
+
+    private void copy(JdbcTemplate sourceJdbc, JdbcTemplate targetJdbc, String table, String where, String username) {
+        List<Object[]> batch = new ArrayList<>(batchSize);
+        String[] insert = new String[1];
+        sourceJdbc.query("select * from " + table + " where " + where, rs -> {
+            ResultSetMetaData meta = rs.getMetaData();
+            int columns = meta.getColumnCount();
+            if (insert[0] == null) {
+                List<String> names = new ArrayList<>(columns);
+                for (int i = 1; i <= columns; i++) {
+                    names.add(meta.getColumnName(i));
+                }
+                insert[0] = "insert ignore into " + table + " (" + String.join(", ", names) + ") values ("
+                        + names.stream().map(name -> "?").collect(Collectors.joining(", ")) + ")";
+            }
+            Object[] row = new Object[columns];
+            for (int i = 1; i <= columns; i++) {
+                row[i - 1] = rs.getObject(i);
+            }
+            batch.add(row);
+            if (batch.size() == batchSize) {
+                targetJdbc.batchUpdate(insert[0], batch);
+                batch.clear();
+            }
+        }, username);
+        if (!batch.isEmpty()) {
+            targetJdbc.batchUpdate(insert[0], batch);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package msyaipulanwar.restful.shard;
+
+import msyaipulanwar.restful.datasource.ReadYourWrites;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Decides which shard the current thread talks to. Inside a request that is the shard of
+ * the request's user, bound by the argument resolver or by {@link #bindUser}. Work that is
+ * not about one user (scheduled jobs, token lookups) names the shard with {@link #onShard}.
+ * With sharding disabled every method is a no-op and there is a single unnamed shard.
+ */
+@Component
+public class ShardRouter {
+    private final ThreadLocal<String> explicitShard = new ThreadLocal<>();
+
+    private final ConsistentHashRing ring;
+
+    public ShardRouter(ShardProperties properties) {
+        this.ring = properties.isEnabled()
+                ? new ConsistentHashRing(properties.getDatasources().keySet(), properties.getVirtualNodes())
+                : null;
+    }
+
+    public boolean isEnabled() {
+        return ring != null;
+    }
+
+    /**
+     * @return the configured shards, or a single null shard when sharding is disabled
+     */
+    public List<String> shards() {
+        return ring != null ? ring.shards() : Collections.singletonList(null);
+    }
+
+    public String shardFor(String username) {
+        return ring != null ? ring.shardFor(username) : null;
+    }
+
+    /**
+     * Routes the rest of the request to the user's shard, for requests that name a user
+     * before one is authenticated (register, login).
+     */
+    public void bindUser(String username) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (ring != null && attributes != null) {
+            attributes.setAttribute(ReadYourWrites.USERNAME_ATTRIBUTE, username, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    /**
+     * Runs {@code work} against {@code shard}. Connections are chosen when first used, so
+     * the work must open its own transaction inside.
+     */
+    public <T> T onShard(String shard, Supplier<T> work) {
+        String previous = explicitShard.get();
+        explicitShard.set(shard);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                explicitShard.remove();
+            } else {
+                explicitShard.set(previous);
+            }
+        }
+    }
+
+    public void onEachShard(Runnable work) {
+        for (String shard : shards()) {
+            onShard(shard, () -> {
+                work.run();
+                return null;
+            });
+        }
+    }
+
+    /**
+     * @return the shard for connections opened now, null for the default shard
+     */
+    public String currentShard() {
+        String shard = explicitShard.get();
+        if (shard != null || ring == null) {
+            return shard;
+        }
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        Object username = attributes == null ? null
+                : attributes.getAttribute(ReadYourWrites.USERNAME_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        return username == null ? null : ring.shardFor((String) username);
+    }
+}
@@ -0,0 +1,30 @@
+package msyaipulanwar.restful.shard;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Picks the shard datasource from {@link ShardRouter#currentShard()}; connections opened
+ * without a shard (schema management, anonymous requests) use the first shard. Must sit
+ * behind a LazyConnectionDataSourceProxy so the shard is bound before the connection is
+ * actually fetched.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+    private final ShardRouter shardRouter;
+
+    public ShardRoutingDataSource(Map<String, DataSource> shards, String defaultShard, ShardRouter shardRouter) {
+        this.shardRouter = shardRouter;
+        setTargetDataSources(new HashMap<>(shards));
+        setDefaultTargetDataSource(shards.get(defaultShard));
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return shardRouter.currentShard();
+    }
+}
@@ -0,0 +1,60 @@
+-- Converts contacts.id and addresses.id/contact_id from VARCHAR(100) to BINARY(16).
+--
+-- Run once against MySQL 8 before starting a version that maps the ids as UUID;
+-- spring.jpa.hibernate.ddl-auto=update does not change existing column types.
+-- Existing ids are converted with UUID_TO_BIN without the swap flag, so every
+-- contact and address keeps the same string id at the API. Only new rows get
+-- time-ordered UUIDv7 ids.
+--
+-- Every existing id must be a canonical UUID, this returns the rows that are not:
+--   SELECT id FROM contacts WHERE NOT IS_UUID(id);
+--   SELECT id FROM addresses WHERE NOT IS_UUID(id) OR NOT IS_UUID(contact_id);
+
+ALTER TABLE contacts ADD COLUMN id_bin BINARY(16) NULL;
+UPDATE contacts SET id_bin = UUID_TO_BIN(id);
+
+ALTER TABLE addresses
+    ADD COLUMN id_bin BINARY(16) NULL,
+    ADD COLUMN contact_id_bin BINARY(16) NULL;
+UPDATE addresses SET id_bin = UUID_TO_BIN(id), contact_id_bin = UUID_TO_BIN(contact_id);
+
+-- the foreign key name depends on how the table was created, and there may be
+-- none; DO 0 is the no-op statement executed then
+SET @drop_fk = NULL;
+SELECT CONCAT('ALTER TABLE addresses DROP FOREIGN KEY ', constraint_name)
+INTO @drop_fk
+FROM information_schema.referential_constraints
+WHERE constraint_schema = DATABASE()
+  AND table_name = 'addresses'
+  AND referenced_table_name = 'contacts'
+LIMIT 1;
+SET @drop_fk = COALESCE(@drop_fk, 'DO 0');
+PREPARE drop_fk FROM @drop_fk;
+EXECUTE drop_fk;
+DEALLOCATE PREPARE drop_fk;
+
+-- idx_contacts_username_id only exists if a version with keyset search ran before
+SET @drop_index = IF(EXISTS(SELECT 1
+                            FROM information_schema.statistics
+                            WHERE table_schema = DATABASE()
+                              AND table_name = 'contacts'
+                              AND index_name = 'idx_contacts_username_id'),
+                     'DROP INDEX idx_contacts_username_id, ', '');
+SET @alter_contacts = CONCAT('ALTER TABLE contacts ', @drop_index,
+                             'DROP PRIMARY KEY, ',
+                             'DROP COLUMN id, ',
+                             'CHANGE COLUMN id_bin id BINARY(16) NOT NULL FIRST, ',
+                             'ADD PRIMARY KEY (id), ',
+                             'ADD INDEX idx_contacts_username_id (username, id)');
+PREPARE alter_contacts FROM @alter_contacts;
+EXECUTE alter_contacts;
+DEALLOCATE PREPARE alter_contacts;
+
+ALTER TABLE addresses
+    DROP PRIMARY KEY,
+    DROP COLUMN id,
+    DROP COLUMN contact_id,
+    CHANGE COLUMN id_bin id BINARY(16) NOT NULL FIRST,
+    CHANGE COLUMN contact_id_bin contact_id BINARY(16) NOT NULL,
+    ADD PRIMARY KEY (id),
+    ADD CONSTRAINT fk_contacts_addresses FOREIGN KEY (contact_id) REFERENCES contacts (id);
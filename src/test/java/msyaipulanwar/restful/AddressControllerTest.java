@@ -0,0 +1,318 @@
+package msyaipulanwar.restful;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import msyaipulanwar.restful.cache.ContactCache;
+import msyaipulanwar.restful.cache.TokenCache;
+import msyaipulanwar.restful.entity.Address;
+import msyaipulanwar.restful.entity.Contact;
+import msyaipulanwar.restful.entity.User;
+import msyaipulanwar.restful.entity.Uuids;
+import msyaipulanwar.restful.model.AddressResponse;
+import msyaipulanwar.restful.model.ContactResponse;
+import msyaipulanwar.restful.model.CreateAddressRequest;
+import msyaipulanwar.restful.model.UpdateAddressRequest;
+import msyaipulanwar.restful.model.WebResponse;
+import msyaipulanwar.restful.repository.AddressRepository;
+import msyaipulanwar.restful.repository.ContactRepository;
+import msyaipulanwar.restful.repository.UserRepository;
+import msyaipulanwar.restful.security.BCrypt;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class AddressControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ContactRepository contactRepository;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private TokenCache tokenCache;
+
+    @Autowired
+    private ContactCache contactCache;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    private UUID contactId;
+
+    @BeforeEach
+    void setUp() {
+        tokenCache.invalidateAll();
+        contactCache.invalidateAll();
+        addressRepository.deleteAll();
+        contactRepository.deleteAll();
+        userRepository.deleteAll();
+
+        User user = new User();
+        user.setUsername("admin");
+        user.setPassword(BCrypt.hashpw("admin", BCrypt.gensalt()));
+        user.setName("admin");
+        user.setToken("TEST");
+        user.setTokenExpired(System.currentTimeMillis() * 1000 * 60);
+        userRepository.save(user);
+
+        Contact contact = new Contact();
+        contact.setId(Uuids.timeOrdered());
+        contact.setFirstName("test");
+        contact.setEmail("test@gmail.com");
+        contact.setUser(user);
+        contactRepository.save(contact);
+        contactId = contact.getId();
+    }
+
+    private Address saveAddress(UUID contactId) {
+        Address address = new Address();
+        address.setId(Uuids.timeOrdered());
+        address.setContact(contactRepository.findById(contactId).orElseThrow());
+        address.setStreet("Jalan");
+        address.setCity("Jakarta");
+        address.setProvince("DKI");
+        address.setCountry("Indonesia");
+        address.setPostalCode("12345");
+        return addressRepository.save(address);
+    }
+
+    @Test
+    void createAddressBadRequest() throws Exception {
+        CreateAddressRequest request = new CreateAddressRequest();
+        request.setCountry("");
+
+        mockMvc.perform(
+                post("/api/contacts/" + contactId + "/addresses")
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .header("X-API-TOKEN", "TEST")
+                        .content(mapper.writeValueAsString(request))
+        ).andExpectAll(
+                status().isBadRequest()
+        ).andDo(result -> {
+            WebResponse<String> response = mapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+            assertNotNull(response.getErrors());
+        });
+    }
+
+    @Test
+    void createAddressContactNotFound() throws Exception {
+        CreateAddressRequest request = new CreateAddressRequest();
+        request.setCountry("Indonesia");
+        request.setPostalCode("12345");
+
+        mockMvc.perform(
+                post("/api/contacts/" + Uuids.timeOrdered() + "/addresses")
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .header("X-API-TOKEN", "TEST")
+                        .content(mapper.writeValueAsString(request))
+        ).andExpectAll(
+                status().isNotFound()
+        );
+    }
+
+    @Test
+    void createAddressSuccess() throws Exception {
+        CreateAddressRequest request = new CreateAddressRequest();
+        request.setStreet("Jalan");
+        request.setCity("Jakarta");
+        request.setProvince("DKI");
+        request.setCountry("Indonesia");
+        request.setPostalCode("12345");
+
+        mockMvc.perform(
+                post("/api/contacts/" + contactId + "/addresses")
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .header("X-API-TOKEN", "TEST")
+                        .content(mapper.writeValueAsString(request))
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<AddressResponse> response = mapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+            assertNull(response.getErrors());
+            assertEquals("Indonesia", response.getData().getCountry());
+            assertTrue(addressRepository.existsById(UUID.fromString(response.getData().getId())));
+        });
+    }
+
+    @Test
+    void getAddressNotFound() throws Exception {
+        mockMvc.perform(
+                get("/api/contacts/" + contactId + "/addresses/" + Uuids.timeOrdered())
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+                        .header("X-API-TOKEN", "TEST")
+        ).andExpectAll(
+                status().isNotFound()
+        );
+    }
+
+    @Test
+    void getAddressSuccess() throws Exception {
+        Address address = saveAddress(contactId);
+
+        mockMvc.perform(
+                get("/api/contacts/" + contactId + "/addresses/" + address.getId())
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+                        .header("X-API-TOKEN", "TEST")
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<AddressResponse> response = mapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+            assertNull(response.getErrors());
+            assertEquals(address.getId().toString(), response.getData().getId());
+            assertEquals("12345", response.getData().getPostalCode());
+        });
+    }
+
+    @Test
+    void updateAddressSuccess() throws Exception {
+        Address address = saveAddress(contactId);
+
+        UpdateAddressRequest request = new UpdateAddressRequest();
+        request.setCity("Bandung");
+        request.setCountry("Indonesia");
+        request.setPostalCode("40111");
+
+        mockMvc.perform(
+                put("/api/contacts/" + contactId + "/addresses/" + address.getId())
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .header("X-API-TOKEN", "TEST")
+                        .content(mapper.writeValueAsString(request))
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<AddressResponse> response = mapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+            assertNull(response.getErrors());
+            assertEquals("Bandung", response.getData().getCity());
+            assertEquals("40111", addressRepository.findById(address.getId()).orElseThrow().getPostalCode());
+        });
+    }
+
+    @Test
+    void removeAddressSuccess() throws Exception {
+        Address address = saveAddress(contactId);
+
+        mockMvc.perform(
+                delete("/api/contacts/" + contactId + "/addresses/" + address.getId())
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+                        .header("X-API-TOKEN", "TEST")
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        assertFalse(addressRepository.existsById(address.getId()));
+    }
+
+    @Test
+    void listAddressesSuccess() throws Exception {
+        saveAddress(contactId);
+        saveAddress(contactId);
+
+        mockMvc.perform(
+                get("/api/contacts/" + contactId + "/addresses")
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+                        .header("X-API-TOKEN", "TEST")
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<List<AddressResponse>> response = mapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+            assertNull(response.getErrors());
+            assertEquals(2, response.getData().size());
+        });
+    }
+
+    @Test
+    void getContactWithAddresses() throws Exception {
+        saveAddress(contactId);
+        saveAddress(contactId);
+
+        mockMvc.perform(
+                get("/api/contacts/" + contactId)
+                        .param("include", "addresses")
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+                        .header("X-API-TOKEN", "TEST")
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<ContactResponse> response = mapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+            assertNull(response.getErrors());
+            assertEquals(2, response.getData().getAddresses().size());
+            assertNull(result.getResponse().getHeader(HttpHeaders.ETAG));
+        });
+    }
+
+    @Test
+    void searchContactsWithAddresses() throws Exception {
+        User user = userRepository.findById("admin").orElseThrow();
+        for (int i = 0; i < 5; i++) {
+            Contact contact = new Contact();
+            contact.setId(Uuids.timeOrdered());
+            contact.setFirstName("test");
+            contact.setUser(user);
+            contactRepository.save(contact);
+            saveAddress(contact.getId());
+        }
+
+        mockMvc.perform(
+                get("/api/contacts")
+                        .param("include", "addresses")
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+                        .header("X-API-TOKEN", "TEST")
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<List<ContactResponse>> response = mapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+            assertNull(response.getErrors());
+            assertEquals(6, response.getData().size());
+            assertEquals(0, response.getData().get(0).getAddresses().size());
+            assertEquals(1, response.getData().get(1).getAddresses().size());
+        });
+    }
+
+    @Test
+    void deleteContactRemovesAddresses() throws Exception {
+        Address address = saveAddress(contactId);
+
+        mockMvc.perform(
+                delete("/api/contacts/" + contactId)
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .header("X-API-TOKEN", "TEST")
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        assertFalse(addressRepository.existsById(address.getId()));
+        assertFalse(contactRepository.existsById(contactId));
+    }
+}
@@ -0,0 +1,26 @@
+package msyaipulanwar.restful;
+
+import msyaipulanwar.restful.exception.ApiError;
+import msyaipulanwar.restful.exception.ApiException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ApiExceptionTest {
+
+    @Test
+    void stackless() {
+        ApiException exception = ApiError.CONTACT_NOT_FOUND.exception();
+        assertEquals(0, exception.getStackTrace().length);
+        assertNotSame(exception, ApiError.CONTACT_NOT_FOUND.exception());
+    }
+
+    @Test
+    void stillResponseStatusException() {
+        ResponseStatusException exception = ApiError.UNAUTHORIZED.exception();
+        assertEquals(HttpStatus.UNAUTHORIZED, exception.getStatusCode());
+        assertEquals("Unauthorized", exception.getReason());
+    }
+}
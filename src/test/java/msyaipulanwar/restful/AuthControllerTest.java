@@ -2,12 +2,15 @@ package msyaipulanwar.restful;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import msyaipulanwar.restful.cache.TokenCache;
 import msyaipulanwar.restful.entity.User;
 import msyaipulanwar.restful.model.TokenResponse;
 import msyaipulanwar.restful.security.BCrypt;
+import msyaipulanwar.restful.security.BCryptWorkFactor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
@@ -35,8 +38,15 @@ class AuthControllerTest {
   @Autowired
   private UserRepository userRepository;
 
+  @Autowired
+  private TokenCache tokenCache;
+
+  @Autowired
+  private BCryptWorkFactor workFactor;
+
   @BeforeEach
   void setUp() {
+    tokenCache.invalidateAll();
     userRepository.deleteAll();
   }
 
@@ -173,4 +183,78 @@ class AuthControllerTest {
                             assertNull(response.getErrors());
                         });
     }
-}
\ No newline at end of file
+
+    @Test
+    void logoutInvalidatesCachedToken() throws Exception {
+      User user = new User();
+      user.setName("test");
+      user.setUsername("test");
+      user.setPassword(BCrypt.hashpw("test", BCrypt.gensalt()));
+      user.setToken("TEST");
+      user.setTokenExpired(System.currentTimeMillis()*1000*60);
+      userRepository.save(user);
+      long misses = tokenCache.stats().missCount();
+      long hits = tokenCache.stats().hitCount();
+
+        mockMvc.perform(
+                        get("/api/users/current")
+                                .accept(MediaType.APPLICATION_JSON)
+                                .header("X-API-TOKEN", "TEST"))
+                .andExpectAll(
+                        status().isOk());
+        assertEquals(misses + 1, tokenCache.stats().missCount());
+
+        mockMvc.perform(
+                        delete("/api/auth/logout")
+                                .accept(MediaType.APPLICATION_JSON)
+                                .header("X-API-TOKEN", "TEST"))
+                .andExpectAll(
+                        status().isOk());
+        assertEquals(hits + 1, tokenCache.stats().hitCount());
+
+        mockMvc.perform(
+                        get("/api/users/current")
+                                .accept(MediaType.APPLICATION_JSON)
+                                .header("X-API-TOKEN", "TEST"))
+                .andExpectAll(
+                        status().isUnauthorized());
+    }
+
+    @Test
+    void unknownTokenIsRemembered() throws Exception {
+        mockMvc.perform(
+                        get("/api/users/current")
+                                .accept(MediaType.APPLICATION_JSON)
+                                .header("X-API-TOKEN", "UNKNOWN"))
+                .andExpectAll(
+                        status().isUnauthorized());
+        // the next request with it is rejected without a users lookup
+        assertTrue(tokenCache.isUnknown("UNKNOWN"));
+    }
+
+    @Test
+    void loginRehashesOutdatedPassword() throws Exception {
+        User user = new User();
+        user.setName("test");
+        user.setUsername("test");
+        user.setPassword(BCrypt.hashpw("test", BCrypt.gensalt(4)));
+        userRepository.save(user);
+
+        LoginUserRequest request = new LoginUserRequest();
+        request.setUsername("test");
+        request.setPassword("test");
+
+        mockMvc.perform(
+                        post("/api/auth/login")
+                                .accept(MediaType.APPLICATION_JSON)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(request)))
+                .andExpectAll(
+                        status().isOk());
+
+        User userDb = userRepository.findById("test").orElseThrow();
+        assertNotEquals(user.getPassword(), userDb.getPassword());
+        assertFalse(workFactor.needsRehash(userDb.getPassword()));
+        assertTrue(BCrypt.checkpw("test", userDb.getPassword()));
+    }
+}
@@ -0,0 +1,256 @@
+package msyaipulanwar.restful;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import msyaipulanwar.restful.cache.ContactCache;
+import msyaipulanwar.restful.cache.TokenCache;
+import msyaipulanwar.restful.entity.Contact;
+import msyaipulanwar.restful.entity.User;
+import msyaipulanwar.restful.entity.Uuids;
+import msyaipulanwar.restful.model.BatchOperation;
+import msyaipulanwar.restful.model.BatchRequest;
+import msyaipulanwar.restful.model.WebResponse;
+import msyaipulanwar.restful.repository.AddressRepository;
+import msyaipulanwar.restful.repository.ContactRepository;
+import msyaipulanwar.restful.repository.UserRepository;
+import msyaipulanwar.restful.security.BCrypt;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class BatchControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ContactRepository contactRepository;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private TokenCache tokenCache;
+
+    @Autowired
+    private ContactCache contactCache;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        tokenCache.invalidateAll();
+        contactCache.invalidateAll();
+        addressRepository.deleteAll();
+        contactRepository.deleteAll();
+        userRepository.deleteAll();
+        user = new User();
+        user.setUsername("admin");
+        user.setPassword(BCrypt.hashpw("admin", BCrypt.gensalt()));
+        user.setName("admin");
+        user.setToken("TEST");
+        user.setTokenExpired(System.currentTimeMillis() * 1000 * 60);
+        userRepository.save(user);
+    }
+
+    @Test
+    void batchUnauthorized() throws Exception {
+        mockMvc.perform(
+                post("/api/batch")
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .content(mapper.writeValueAsString(request(BatchRequest.Mode.ATOMIC,
+                                operation("user.get", null, null))))
+        ).andExpectAll(
+                status().isUnauthorized()
+        );
+    }
+
+    @Test
+    void atomicBatchCommitsEveryOperation() throws Exception {
+        Contact existing = contact("Lama");
+
+        BatchRequest request = request(BatchRequest.Mode.ATOMIC,
+                operation("contact.create", null, Map.of("firstName", "Budi", "email", "budi@example.com")),
+                operation("contact.patch", existing.getId().toString(), Map.of("firstName", "Baru")),
+                operation("contact.get", existing.getId().toString(), null),
+                operation("user.update", null, Map.of("name", "Administrator")),
+                operation("user.get", null, null));
+
+        WebResponse<List<WebResponse<Map<String, Object>>>> response = perform(request, 200);
+
+        assertNull(response.getErrors());
+        assertEquals(5, response.getData().size());
+        response.getData().forEach(result -> assertNull(result.getErrors()));
+        assertEquals("Budi", response.getData().get(0).getData().get("firstName"));
+        assertEquals("Baru", response.getData().get(2).getData().get("firstName"));
+        assertEquals("Administrator", response.getData().get(4).getData().get("name"));
+        assertEquals(2, contactRepository.count());
+        assertEquals("Administrator", userRepository.findById("admin").orElseThrow().getName());
+    }
+
+    @Test
+    void atomicBatchRollsBackOnFailure() throws Exception {
+        Contact existing = contact("Lama");
+
+        BatchRequest request = request(BatchRequest.Mode.ATOMIC,
+                operation("contact.create", null, Map.of("firstName", "Budi")),
+                operation("contact.delete", existing.getId().toString(), null),
+                operation("contact.get", Uuids.timeOrdered().toString(), null),
+                operation("user.get", null, null));
+
+        WebResponse<List<WebResponse<Map<String, Object>>>> response = perform(request, 404);
+
+        assertEquals("Operation 2 failed, batch rolled back", response.getErrors());
+        assertEquals(4, response.getData().size());
+        assertEquals("Rolled back", response.getData().get(0).getErrors());
+        assertEquals("Rolled back", response.getData().get(1).getErrors());
+        assertEquals("Contact not found", response.getData().get(2).getErrors());
+        assertEquals("Not executed", response.getData().get(3).getErrors());
+
+        List<Contact> contacts = contactRepository.findAll();
+        assertEquals(1, contacts.size());
+        assertEquals(existing.getId(), contacts.get(0).getId());
+    }
+
+    @Test
+    void independentBatchKeepsSuccessfulOperations() throws Exception {
+        BatchRequest request = request(BatchRequest.Mode.INDEPENDENT,
+                operation("contact.create", null, Map.of("firstName", "Budi")),
+                operation("contact.create", null, Map.of("email", "bukan email")),
+                operation("contact.unknown", null, null),
+                operation("contact.create", null, Map.of("firstName", "Joko")));
+
+        WebResponse<List<WebResponse<Map<String, Object>>>> response = perform(request, 200);
+
+        assertNull(response.getErrors());
+        assertEquals(4, response.getData().size());
+        assertEquals("Budi", response.getData().get(0).getData().get("firstName"));
+        assertNotNull(response.getData().get(1).getErrors());
+        assertEquals("Unknown operation contact.unknown", response.getData().get(2).getErrors());
+        assertEquals("Joko", response.getData().get(3).getData().get("firstName"));
+        assertEquals(2, contactRepository.count());
+    }
+
+    @Test
+    void atomicBatchReadsItsOwnWrites() throws Exception {
+        Contact existing = contact("Lama");
+        // puts the committed row in the contact cache
+        mockMvc.perform(
+                get("/api/contacts/" + existing.getId())
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+                        .header("X-API-TOKEN", "TEST")
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        BatchRequest request = request(BatchRequest.Mode.ATOMIC,
+                operation("contact.patch", existing.getId().toString(), Map.of("firstName", "Baru")),
+                operation("contact.get", existing.getId().toString(), null));
+
+        WebResponse<List<WebResponse<Map<String, Object>>>> response = perform(request, 200);
+
+        // not the cached row from before the patch
+        assertEquals("Baru", response.getData().get(1).getData().get("firstName"));
+        assertTrue(contactCache.getIfPresent("admin", existing.getId()).isEmpty());
+    }
+
+    @Test
+    void atomicBatchPatchAfterDeleteNotFound() throws Exception {
+        Contact existing = contact("Lama");
+        // puts the committed row in the contact cache
+        mockMvc.perform(
+                get("/api/contacts/" + existing.getId())
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+                        .header("X-API-TOKEN", "TEST")
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        BatchRequest request = request(BatchRequest.Mode.ATOMIC,
+                operation("contact.delete", existing.getId().toString(), null),
+                operation("contact.patch", existing.getId().toString(), Map.of("firstName", "Baru")));
+
+        // the cached version must not make the deleted contact look modified
+        WebResponse<List<WebResponse<Map<String, Object>>>> response = perform(request, 404);
+
+        assertEquals("Contact not found", response.getData().get(1).getErrors());
+        assertTrue(contactRepository.existsById(existing.getId()));
+    }
+
+    @Test
+    void independentBatchWritesAfterRead() throws Exception {
+        Contact existing = contact("Lama");
+
+        BatchRequest request = request(BatchRequest.Mode.INDEPENDENT,
+                operation("contact.get", existing.getId().toString(), null),
+                operation("contact.create", null, Map.of("firstName", "Budi")));
+
+        WebResponse<List<WebResponse<Map<String, Object>>>> response = perform(request, 200);
+
+        response.getData().forEach(result -> assertNull(result.getErrors()));
+        assertEquals("Lama", response.getData().get(0).getData().get("firstName"));
+        assertEquals("Budi", response.getData().get(1).getData().get("firstName"));
+        assertEquals(2, contactRepository.count());
+    }
+
+    @Test
+    void emptyBatchBadRequest() throws Exception {
+        WebResponse<List<WebResponse<Map<String, Object>>>> response = perform(request(BatchRequest.Mode.ATOMIC), 400);
+
+        assertNotNull(response.getErrors());
+    }
+
+    private WebResponse<List<WebResponse<Map<String, Object>>>> perform(BatchRequest request, int status) throws Exception {
+        String body = mockMvc.perform(
+                post("/api/batch")
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .header("X-API-TOKEN", "TEST")
+                        .content(mapper.writeValueAsString(request))
+        ).andExpectAll(
+                status().is(status)
+        ).andReturn().getResponse().getContentAsString();
+        return mapper.readValue(body, new TypeReference<>() {
+        });
+    }
+
+    private BatchRequest request(BatchRequest.Mode mode, BatchOperation... operations) {
+        return BatchRequest.builder().mode(mode).operations(List.of(operations)).build();
+    }
+
+    private BatchOperation operation(String op, String id, Map<String, Object> body) {
+        return BatchOperation.builder()
+                .op(op)
+                .id(id)
+                .body(body == null ? null : mapper.valueToTree(body))
+                .build();
+    }
+
+    private Contact contact(String firstName) {
+        Contact contact = new Contact();
+        contact.setId(Uuids.timeOrdered());
+        contact.setUser(user);
+        contact.setFirstName(firstName);
+        return contactRepository.save(contact);
+    }
+}
@@ -0,0 +1,57 @@
+package msyaipulanwar.restful;
+
+import msyaipulanwar.restful.shard.ConsistentHashRing;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsistentHashRingTest {
+
+    private static final int USERS = 30_000;
+
+    @Test
+    void sameUserSameShard() {
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("shard1", "shard2", "shard3"), 128);
+        ConsistentHashRing again = new ConsistentHashRing(List.of("shard3", "shard1", "shard2"), 128);
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(ring.shardFor("user" + i), again.shardFor("user" + i));
+        }
+    }
+
+    @Test
+    void usersAreSpreadEvenly() {
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("shard1", "shard2", "shard3"), 128);
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < USERS; i++) {
+            counts.merge(ring.shardFor("user" + i), 1, Integer::sum);
+        }
+
+        assertEquals(3, counts.size());
+        counts.values().forEach(count -> assertTrue(Math.abs(count - USERS / 3) < USERS / 3 / 4, counts.toString()));
+    }
+
+    @Test
+    void addingAShardOnlyMovesItsShare() {
+        ConsistentHashRing before = new ConsistentHashRing(List.of("shard1", "shard2", "shard3"), 128);
+        ConsistentHashRing after = new ConsistentHashRing(List.of("shard1", "shard2", "shard3", "shard4"), 128);
+
+        int moved = 0;
+        for (int i = 0; i < USERS; i++) {
+            String from = before.shardFor("user" + i);
+            String to = after.shardFor("user" + i);
+            if (!from.equals(to)) {
+                assertEquals("shard4", to);
+                moved++;
+            }
+        }
+
+        // about a quarter of the users belong to the new shard
+        assertTrue(Math.abs(moved - USERS / 4) < USERS / 4 / 4, String.valueOf(moved));
+    }
+}
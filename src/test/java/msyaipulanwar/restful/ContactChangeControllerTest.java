@@ -0,0 +1,276 @@
+package msyaipulanwar.restful;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import msyaipulanwar.restful.cache.ContactCache;
+import msyaipulanwar.restful.cache.TokenCache;
+import msyaipulanwar.restful.entity.Contact;
+import msyaipulanwar.restful.entity.User;
+import msyaipulanwar.restful.entity.Uuids;
+import msyaipulanwar.restful.model.ContactChangeResponse;
+import msyaipulanwar.restful.model.UpdateContactRequest;
+import msyaipulanwar.restful.model.WebResponse;
+import msyaipulanwar.restful.repository.AddressRepository;
+import msyaipulanwar.restful.repository.ContactChangeSequenceRepository;
+import msyaipulanwar.restful.repository.ContactRepository;
+import msyaipulanwar.restful.repository.ContactTombstoneRepository;
+import msyaipulanwar.restful.repository.UserRepository;
+import msyaipulanwar.restful.security.BCrypt;
+import msyaipulanwar.restful.service.ContactService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ContactChangeControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ContactRepository contactRepository;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private ContactTombstoneRepository contactTombstoneRepository;
+
+    @Autowired
+    private ContactChangeSequenceRepository contactChangeSequenceRepository;
+
+    @Autowired
+    private ContactService contactService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TokenCache tokenCache;
+
+    @Autowired
+    private ContactCache contactCache;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @BeforeEach
+    void setUp() {
+        tokenCache.invalidateAll();
+        contactCache.invalidateAll();
+        contactTombstoneRepository.deleteAll();
+        contactChangeSequenceRepository.deleteAll();
+        addressRepository.deleteAll();
+        contactRepository.deleteAll();
+        userRepository.deleteAll();
+
+        User user = new User();
+        user.setUsername("admin");
+        user.setPassword(BCrypt.hashpw("admin", BCrypt.gensalt()));
+        user.setName("admin");
+        user.setToken("TEST");
+        user.setTokenExpired(System.currentTimeMillis() * 1000 * 60);
+        userRepository.save(user);
+    }
+
+    private Contact saveContact(String firstName) {
+        Contact contact = new Contact();
+        contact.setId(Uuids.timeOrdered());
+        contact.setFirstName(firstName);
+        contact.setUser(userRepository.findById("admin").orElseThrow());
+        return contactRepository.save(contact);
+    }
+
+    private WebResponse<List<ContactChangeResponse>> changes(String since, int size) throws Exception {
+        MockHttpServletRequestBuilder request = get("/api/contacts/changes")
+                .queryParam("size", String.valueOf(size))
+                .accept(MediaType.APPLICATION_JSON_VALUE)
+                .header("X-API-TOKEN", "TEST");
+        if (since != null) {
+            request.queryParam("since", since);
+        }
+        return mapper.readValue(mockMvc.perform(request)
+                .andExpectAll(status().isOk())
+                .andReturn().getResponse().getContentAsString(), new TypeReference<>() {
+        });
+    }
+
+    @Test
+    void changesUnauthorized() throws Exception {
+        mockMvc.perform(
+                get("/api/contacts/changes")
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+        ).andExpectAll(
+                status().isUnauthorized()
+        );
+    }
+
+    @Test
+    void changesInvalidCursor() throws Exception {
+        mockMvc.perform(
+                get("/api/contacts/changes")
+                        .queryParam("since", "yesterday")
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+                        .header("X-API-TOKEN", "TEST")
+        ).andExpectAll(
+                status().isBadRequest()
+        );
+    }
+
+    @Test
+    void changesExpiredCursor() throws Exception {
+        mockMvc.perform(
+                get("/api/contacts/changes")
+                        .queryParam("since", "1." + Uuids.timeOrdered() + ".1")
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+                        .header("X-API-TOKEN", "TEST")
+        ).andExpectAll(
+                status().isGone()
+        );
+
+        // <updatedAt>.<id> cursors from before the change sequence
+        mockMvc.perform(
+                get("/api/contacts/changes")
+                        .queryParam("since", System.currentTimeMillis() + "." + Uuids.timeOrdered())
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+                        .header("X-API-TOKEN", "TEST")
+        ).andExpectAll(
+                status().isGone()
+        );
+    }
+
+    @Test
+    void changesPaged() throws Exception {
+        for (int i = 0; i < 7; i++) {
+            saveContact("test" + i);
+        }
+
+        List<ContactChangeResponse> all = new ArrayList<>();
+        String since = null;
+        WebResponse<List<ContactChangeResponse>> page;
+        do {
+            page = changes(since, 3);
+            all.addAll(page.getData());
+            since = page.getPaging().getNext();
+        } while (page.getData().size() == 3);
+
+        assertEquals(7, all.size());
+        assertEquals(7, all.stream().map(ContactChangeResponse::getId).distinct().count());
+        assertNotNull(since);
+
+        // nothing changed since the last cursor
+        WebResponse<List<ContactChangeResponse>> empty = changes(since, 3);
+        assertTrue(empty.getData().isEmpty());
+        String next = empty.getPaging().getNext();
+        assertEquals(since.substring(0, since.lastIndexOf('.')), next.substring(0, next.lastIndexOf('.')));
+    }
+
+    @Test
+    void changesIncludeUpdatesAndDeletes() throws Exception {
+        Contact updated = saveContact("updated");
+        Contact deleted = saveContact("deleted");
+        saveContact("unchanged");
+
+        String since = changes(null, 10).getPaging().getNext();
+
+        UpdateContactRequest request = new UpdateContactRequest();
+        request.setFirstName("after update");
+        mockMvc.perform(
+                put("/api/contacts/" + updated.getId())
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .header("X-API-TOKEN", "TEST")
+                        .content(mapper.writeValueAsString(request))
+        ).andExpectAll(
+                status().isOk()
+        );
+        mockMvc.perform(
+                delete("/api/contacts/" + deleted.getId())
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .header("X-API-TOKEN", "TEST")
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        WebResponse<List<ContactChangeResponse>> response = changes(since, 10);
+        assertNull(response.getErrors());
+        assertEquals(2, response.getData().size());
+
+        ContactChangeResponse update = response.getData().get(0);
+        assertEquals(updated.getId().toString(), update.getId());
+        assertFalse(update.isDeleted());
+        assertEquals("after update", update.getContact().getFirstName());
+
+        ContactChangeResponse delete = response.getData().get(1);
+        assertEquals(deleted.getId().toString(), delete.getId());
+        assertTrue(delete.isDeleted());
+        assertNull(delete.getContact());
+    }
+
+    @Test
+    void changesFollowCommitOrder() throws Exception {
+        Contact first = saveContact("first");
+        Contact second = saveContact("second");
+        String since = changes(null, 10).getPaging().getNext();
+        User user = userRepository.findById("admin").orElseThrow();
+
+        CountDownLatch written = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread slow = new Thread(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            contactService.update(user, updateRequest(first, "slow"));
+            written.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        slow.start();
+        assertTrue(written.await(10, TimeUnit.SECONDS));
+
+        // waits for the slow transaction on the user's change sequence
+        Thread fast = new Thread(() -> contactService.update(user, updateRequest(second, "fast")));
+        fast.start();
+        Thread.sleep(200);
+
+        WebResponse<List<ContactChangeResponse>> during = changes(since, 10);
+        assertTrue(during.getData().isEmpty());
+
+        release.countDown();
+        slow.join();
+        fast.join();
+
+        List<ContactChangeResponse> after = changes(during.getPaging().getNext(), 10).getData();
+        assertEquals(List.of(first.getId().toString(), second.getId().toString()),
+                after.stream().map(ContactChangeResponse::getId).toList());
+        assertEquals("slow", after.get(0).getContact().getFirstName());
+        assertEquals("fast", after.get(1).getContact().getFirstName());
+    }
+
+    private static UpdateContactRequest updateRequest(Contact contact, String firstName) {
+        UpdateContactRequest request = new UpdateContactRequest();
+        request.setId(contact.getId().toString());
+        request.setFirstName(firstName);
+        return request;
+    }
+}
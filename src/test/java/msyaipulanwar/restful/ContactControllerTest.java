@@ -2,12 +2,18 @@ package msyaipulanwar.restful;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import msyaipulanwar.restful.cache.ContactCache;
+import msyaipulanwar.restful.cache.TokenCache;
 import msyaipulanwar.restful.entity.Contact;
 import msyaipulanwar.restful.entity.User;
+import msyaipulanwar.restful.entity.Uuids;
 import msyaipulanwar.restful.model.ContactResponse;
 import msyaipulanwar.restful.model.CreateContactRequest;
+import msyaipulanwar.restful.model.ImportContactResponse;
+import msyaipulanwar.restful.model.PatchContactRequest;
 import msyaipulanwar.restful.model.UpdateContactRequest;
 import msyaipulanwar.restful.model.WebResponse;
+import msyaipulanwar.restful.repository.AddressRepository;
 import msyaipulanwar.restful.repository.ContactRepository;
 import msyaipulanwar.restful.repository.UserRepository;
 import msyaipulanwar.restful.security.BCrypt;
@@ -21,11 +27,15 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
-import java.util.UUID;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -41,11 +51,23 @@ class ContactControllerTest {
     @Autowired
     private ContactRepository contactRepository;
 
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private TokenCache tokenCache;
+
+    @Autowired
+    private ContactCache contactCache;
+
     @Autowired
     private ObjectMapper mapper = new ObjectMapper();
 
     @BeforeEach
     void setUp() {
+        tokenCache.invalidateAll();
+        contactCache.invalidateAll();
+        addressRepository.deleteAll();
         contactRepository.deleteAll();
         userRepository.deleteAll();
         User user = new User();
@@ -120,6 +142,35 @@ class ContactControllerTest {
         });
     }
 
+    @Test
+    void createContactsBulk() throws Exception {
+        CreateContactRequest valid = new CreateContactRequest();
+        valid.setFirstName("test");
+        valid.setEmail("test@gmail.com");
+
+        CreateContactRequest invalid = new CreateContactRequest();
+        invalid.setEmail("test@gmail.com");
+
+        mockMvc.perform(
+                post("/api/contacts/bulk")
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .header("X-API-TOKEN", "TEST")
+                        .content(mapper.writeValueAsString(List.of(valid, invalid, valid)))
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<List<WebResponse<ContactResponse>>> response = mapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+            assertNull(response.getErrors());
+            assertEquals(3, response.getData().size());
+            assertNotNull(response.getData().get(0).getData());
+            assertNotNull(response.getData().get(1).getErrors());
+            assertNotNull(response.getData().get(2).getData());
+            assertEquals(2, contactRepository.count());
+        });
+    }
+
     // ---------------------------------------- GET CONTACT
 
     @Test
@@ -144,7 +195,7 @@ class ContactControllerTest {
         User user = userRepository.findById("admin").orElseThrow();
 
         Contact contact = new Contact();
-        contact.setId(UUID.randomUUID().toString());
+        contact.setId(Uuids.timeOrdered());
         contact.setFirstName("test");
         contact.setEmail("test@gmail.com");
         contact.setUser(user);
@@ -166,6 +217,94 @@ class ContactControllerTest {
         });
     }
 
+    @Test
+    void getContactNotModified() throws Exception {
+        User user = userRepository.findById("admin").orElseThrow();
+
+        Contact contact = new Contact();
+        contact.setId(Uuids.timeOrdered());
+        contact.setFirstName("test");
+        contact.setEmail("test@gmail.com");
+        contact.setUser(user);
+        contactRepository.save(contact);
+
+        String eTag = mockMvc.perform(
+                get("/api/contacts/"+contact.getId())
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+                        .header("X-API-TOKEN", "TEST")
+        ).andExpectAll(
+                status().isOk(),
+                header().exists("ETag")
+        ).andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(
+                get("/api/contacts/"+contact.getId())
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+                        .header("X-API-TOKEN", "TEST")
+                        .header("If-None-Match", eTag)
+        ).andExpectAll(
+                status().isNotModified()
+        );
+
+        mockMvc.perform(
+                get("/api/contacts/"+contact.getId())
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+                        .header("X-API-TOKEN", "TEST")
+                        .header("If-None-Match", "\"999\"")
+        ).andExpectAll(
+                status().isOk()
+        );
+    }
+
+    @Test
+    void getContactCachedUntilUpdate() throws Exception {
+        User user = userRepository.findById("admin").orElseThrow();
+
+        Contact contact = new Contact();
+        contact.setId(Uuids.timeOrdered());
+        contact.setFirstName("test");
+        contact.setEmail("test@gmail.com");
+        contact.setUser(user);
+        contactRepository.save(contact);
+
+        long hits = contactCache.stats().hitCount();
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(
+                    get("/api/contacts/"+contact.getId())
+                            .accept(MediaType.APPLICATION_JSON_VALUE)
+                            .header("X-API-TOKEN", "TEST")
+            ).andExpectAll(
+                    status().isOk()
+            );
+        }
+        assertEquals(hits + 1, contactCache.stats().hitCount());
+
+        UpdateContactRequest updateContactRequest = new UpdateContactRequest();
+        updateContactRequest.setFirstName("after update");
+        updateContactRequest.setEmail("update@gmail.com");
+        mockMvc.perform(
+                put("/api/contacts/"+contact.getId())
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .header("X-API-TOKEN", "TEST")
+                        .content(mapper.writeValueAsString(updateContactRequest))
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        mockMvc.perform(
+                get("/api/contacts/"+contact.getId())
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+                        .header("X-API-TOKEN", "TEST")
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<ContactResponse> response = mapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+            assertEquals("after update", response.getData().getFirstName());
+        });
+    }
+
     //----------------------------------------- Update Contact
     @Test
     void updateContactsUnauthorized() throws Exception {
@@ -192,7 +331,7 @@ class ContactControllerTest {
         User user = userRepository.findById("admin").orElseThrow();
 
         Contact contact = new Contact();
-        contact.setId(UUID.randomUUID().toString());
+        contact.setId(Uuids.timeOrdered());
         contact.setFirstName("test");
         contact.setEmail("test@gmail.com");
         contact.setUser(user);
@@ -245,7 +384,7 @@ class ContactControllerTest {
         User user = userRepository.findById("admin").orElseThrow();
 
         Contact contact = new Contact();
-        contact.setId(UUID.randomUUID().toString());
+        contact.setId(Uuids.timeOrdered());
         contact.setFirstName("test");
         contact.setEmail("test@gmail.com");
         contact.setUser(user);
@@ -270,6 +409,65 @@ class ContactControllerTest {
         });
     }
 
+    @Test
+    void patchContactsIfMatch() throws Exception {
+        User user = userRepository.findById("admin").orElseThrow();
+
+        Contact contact = new Contact();
+        contact.setId(Uuids.timeOrdered());
+        contact.setFirstName("test");
+        contact.setEmail("test@gmail.com");
+        contact.setUser(user);
+        contactRepository.save(contact);
+
+        PatchContactRequest patchContactRequest = new PatchContactRequest();
+        patchContactRequest.setLastName("patched");
+
+        mockMvc.perform(
+                patch("/api/contacts/"+contact.getId())
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .header("X-API-TOKEN", "TEST")
+                        .header("If-Match", "\"0\"")
+                        .content(mapper.writeValueAsString(patchContactRequest))
+        ).andExpectAll(
+                status().isOk(),
+                header().string("ETag", "\"1\"")
+        ).andDo(result -> {
+            WebResponse<ContactResponse> response = mapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+            assertEquals("test", response.getData().getFirstName());
+            assertEquals("patched", response.getData().getLastName());
+        });
+
+        mockMvc.perform(
+                patch("/api/contacts/"+contact.getId())
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .header("X-API-TOKEN", "TEST")
+                        .header("If-Match", "\"0\"")
+                        .content(mapper.writeValueAsString(patchContactRequest))
+        ).andExpectAll(
+                status().isPreconditionFailed()
+        ).andDo(result -> {
+            WebResponse<String> response = mapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+            assertNotNull(response.getErrors());
+        });
+
+        // If-Match compares strongly, a weak tag of the current version does not match
+        mockMvc.perform(
+                patch("/api/contacts/"+contact.getId())
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .header("X-API-TOKEN", "TEST")
+                        .header("If-Match", "W/\"1\"")
+                        .content(mapper.writeValueAsString(patchContactRequest))
+        ).andExpectAll(
+                status().isPreconditionFailed()
+        );
+    }
+
     @Test
     void deleteContactsNotFound() throws Exception {
         mockMvc.perform(
@@ -292,7 +490,7 @@ class ContactControllerTest {
         User user = userRepository.findById("admin").orElseThrow();
 
         Contact contact = new Contact();
-        contact.setId(UUID.randomUUID().toString());
+        contact.setId(Uuids.timeOrdered());
         contact.setFirstName("test");
         contact.setEmail("test@gmail.com");
         contact.setUser(user);
@@ -312,4 +510,181 @@ class ContactControllerTest {
         });
     }
 
+    //----------------------------------------- Search Contact
+    @Test
+    void searchContactsKeyset() throws Exception {
+        User user = userRepository.findById("admin").orElseThrow();
+        for (int i = 0; i < 15; i++) {
+            Contact contact = new Contact();
+            contact.setId(Uuids.timeOrdered());
+            contact.setFirstName(i < 5 ? "budi" + i : "test" + i);
+            contact.setEmail("test" + i + "@gmail.com");
+            contact.setUser(user);
+            contactRepository.save(contact);
+        }
+
+        String next = mapper.readValue(mockMvc.perform(
+                get("/api/contacts")
+                        .queryParam("size", "10")
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+                        .header("X-API-TOKEN", "TEST")
+        ).andExpectAll(
+                status().isOk()
+        ).andReturn().getResponse().getContentAsString(), new TypeReference<WebResponse<List<ContactResponse>>>() {
+        }).getPaging().getNext();
+        assertNotNull(next);
+
+        mockMvc.perform(
+                get("/api/contacts")
+                        .queryParam("size", "10")
+                        .queryParam("after", next)
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+                        .header("X-API-TOKEN", "TEST")
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<List<ContactResponse>> response = mapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+            assertNull(response.getErrors());
+            assertEquals(5, response.getData().size());
+            assertNull(response.getPaging().getNext());
+        });
+
+        mockMvc.perform(
+                get("/api/contacts")
+                        .queryParam("name", "budi")
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+                        .header("X-API-TOKEN", "TEST")
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<List<ContactResponse>> response = mapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+            assertEquals(5, response.getData().size());
+        });
+    }
+
+    @Test
+    void searchContactsTreatsWildcardsLiterally() throws Exception {
+        User user = userRepository.findById("admin").orElseThrow();
+        for (String firstName : new String[]{"100%", "1000", "a_b", "axb"}) {
+            Contact contact = new Contact();
+            contact.setId(Uuids.timeOrdered());
+            contact.setFirstName(firstName);
+            contact.setUser(user);
+            contactRepository.save(contact);
+        }
+
+        for (String[] search : new String[][]{{"100%", "100%"}, {"a_", "a_b"}, {"%", null}}) {
+            mockMvc.perform(
+                    get("/api/contacts")
+                            .queryParam("name", search[0])
+                            .accept(MediaType.APPLICATION_JSON_VALUE)
+                            .header("X-API-TOKEN", "TEST")
+            ).andExpectAll(
+                    status().isOk()
+            ).andDo(result -> {
+                WebResponse<List<ContactResponse>> response = mapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+                });
+                if (search[1] == null) {
+                    assertEquals(0, response.getData().size());
+                } else {
+                    assertEquals(1, response.getData().size());
+                    assertEquals(search[1], response.getData().get(0).getFirstName());
+                }
+            });
+        }
+    }
+
+    //----------------------------------------- Export Contact
+    @Test
+    void exportContacts() throws Exception {
+        User user = userRepository.findById("admin").orElseThrow();
+        for (int i = 0; i < 3; i++) {
+            Contact contact = new Contact();
+            contact.setId(Uuids.timeOrdered());
+            contact.setFirstName("test, " + i);
+            contact.setEmail("test" + i + "@gmail.com");
+            contact.setUser(user);
+            contactRepository.save(contact);
+        }
+
+        mockMvc.perform(
+                get("/api/contacts/export")
+                        .queryParam("format", "ndjson")
+                        .header("X-API-TOKEN", "TEST")
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            String[] lines = result.getResponse().getContentAsString().split("\n");
+            assertEquals(3, lines.length);
+            assertNotNull(mapper.readValue(lines[0], ContactResponse.class).getId());
+        });
+
+        mockMvc.perform(
+                get("/api/contacts/export")
+                        .queryParam("format", "csv")
+                        .header("X-API-TOKEN", "TEST")
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            String[] lines = result.getResponse().getContentAsString().split("\n");
+            assertEquals(4, lines.length);
+            assertEquals("id,firstName,lastName,phone,email", lines[0]);
+        });
+    }
+
+    //----------------------------------------- Import Contact
+    @Test
+    void importContacts() throws Exception {
+        String csv = "firstName,lastName,phone,email\n"
+                + "budi,santoso,,budi@gmail.com\n"
+                + "\"joko, jr\",,,joko@gmail.com\n"
+                + ",kosong,,kosong@gmail.com\n";
+
+        mockMvc.perform(
+                post("/api/contacts/import")
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+                        .contentType("text/csv")
+                        .header("X-API-TOKEN", "TEST")
+                        .content(csv)
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<ImportContactResponse> response = mapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+            assertNull(response.getErrors());
+            assertEquals(2, response.getData().getInserted());
+            assertEquals(1, response.getData().getRejected());
+            assertEquals(2, contactRepository.count());
+        });
+    }
+
+    @Test
+    void importContactsSkipsBomAndBlankLines() throws Exception {
+        String csv = "\uFEFFfirstName,email\r\n"
+                + "\r\n"
+                + "budi,budi@gmail.com\r\n"
+                + "\"joko\njr\",joko@gmail.com\r\n"
+                + ",kosong@gmail.com\r\n"
+                + "\r\n";
+
+        mockMvc.perform(
+                post("/api/contacts/import")
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+                        .contentType("text/csv")
+                        .header("X-API-TOKEN", "TEST")
+                        .content(csv.getBytes(StandardCharsets.UTF_8))
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<ImportContactResponse> response = mapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+            assertNull(response.getErrors());
+            assertEquals(2, response.getData().getInserted());
+            assertEquals(1, response.getData().getRejected());
+            assertTrue(response.getData().getErrors().get(0).startsWith("line 6: "));
+        });
+    }
+
 }
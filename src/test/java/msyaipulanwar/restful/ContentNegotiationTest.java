@@ -0,0 +1,214 @@
+package msyaipulanwar.restful;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import msyaipulanwar.restful.cache.ContactCache;
+import msyaipulanwar.restful.cache.TokenCache;
+import msyaipulanwar.restful.entity.Contact;
+import msyaipulanwar.restful.entity.User;
+import msyaipulanwar.restful.entity.Uuids;
+import msyaipulanwar.restful.model.ContactResponse;
+import msyaipulanwar.restful.model.CreateContactRequest;
+import msyaipulanwar.restful.model.PatchContactRequest;
+import msyaipulanwar.restful.model.WebResponse;
+import msyaipulanwar.restful.repository.AddressRepository;
+import msyaipulanwar.restful.repository.ContactRepository;
+import msyaipulanwar.restful.repository.UserRepository;
+import msyaipulanwar.restful.security.BCrypt;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ContentNegotiationTest {
+    private final CBORMapper cborMapper = new CBORMapper();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ContactRepository contactRepository;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private TokenCache tokenCache;
+
+    @Autowired
+    private ContactCache contactCache;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        tokenCache.invalidateAll();
+        contactCache.invalidateAll();
+        addressRepository.deleteAll();
+        contactRepository.deleteAll();
+        userRepository.deleteAll();
+        user = new User();
+        user.setUsername("admin");
+        user.setPassword(BCrypt.hashpw("admin", BCrypt.gensalt()));
+        user.setName("admin");
+        user.setToken("TEST");
+        user.setTokenExpired(System.currentTimeMillis() * 1000 * 60);
+        userRepository.save(user);
+    }
+
+    @Test
+    void createContactWithCbor() throws Exception {
+        CreateContactRequest request = new CreateContactRequest();
+        request.setFirstName("Budi");
+        request.setEmail("budi@example.com");
+
+        byte[] body = mockMvc.perform(
+                post("/api/contacts")
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .contentType(MediaType.APPLICATION_CBOR)
+                        .header("X-API-TOKEN", "TEST")
+                        .content(cborMapper.writeValueAsBytes(request))
+        ).andExpectAll(
+                status().isOk(),
+                content().contentType(MediaType.APPLICATION_CBOR)
+        ).andReturn().getResponse().getContentAsByteArray();
+
+        WebResponse<ContactResponse> response = cborMapper.readValue(body, new TypeReference<>() {
+        });
+        assertNull(response.getErrors());
+        assertEquals("Budi", response.getData().getFirstName());
+        assertEquals("budi@example.com", response.getData().getEmail());
+        assertEquals(1, contactRepository.count());
+    }
+
+    @Test
+    void eTagPerRepresentation() throws Exception {
+        Contact contact = new Contact();
+        contact.setId(Uuids.timeOrdered());
+        contact.setFirstName("Budi");
+        contact.setUser(user);
+        contactRepository.save(contact);
+        String path = "/api/contacts/" + contact.getId();
+
+        mockMvc.perform(
+                get(path)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "TEST")
+        ).andExpectAll(
+                status().isOk(),
+                header().string(HttpHeaders.ETAG, "\"0\""),
+                header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+        );
+        mockMvc.perform(
+                get(path)
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .header("X-API-TOKEN", "TEST")
+        ).andExpectAll(
+                status().isOk(),
+                content().contentType(MediaType.APPLICATION_CBOR),
+                header().string(HttpHeaders.ETAG, "\"0-cbor\""),
+                header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+        );
+
+        // the JSON tag does not validate a cached CBOR response
+        mockMvc.perform(
+                get(path)
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .header("X-API-TOKEN", "TEST")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"0\"")
+        ).andExpectAll(
+                status().isOk()
+        );
+        mockMvc.perform(
+                get(path)
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .header("X-API-TOKEN", "TEST")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"0-cbor\"")
+        ).andExpectAll(
+                status().isNotModified(),
+                header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+        );
+
+        PatchContactRequest request = new PatchContactRequest();
+        request.setFirstName("Baru");
+        mockMvc.perform(
+                patch(path)
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .contentType(MediaType.APPLICATION_CBOR)
+                        .header("X-API-TOKEN", "TEST")
+                        .header(HttpHeaders.IF_MATCH, "\"0-cbor\"")
+                        .content(cborMapper.writeValueAsBytes(request))
+        ).andExpectAll(
+                status().isOk(),
+                header().string(HttpHeaders.ETAG, "\"1-cbor\""),
+                header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+        );
+    }
+
+    @Test
+    void errorsWithCbor() throws Exception {
+        byte[] body = mockMvc.perform(
+                get("/api/users/current")
+                        .accept(MediaType.APPLICATION_CBOR)
+        ).andExpectAll(
+                status().isUnauthorized(),
+                content().contentType(MediaType.APPLICATION_CBOR)
+        ).andReturn().getResponse().getContentAsByteArray();
+
+        WebResponse<String> response = cborMapper.readValue(body, new TypeReference<>() {
+        });
+        assertEquals("Unauthorized", response.getErrors());
+    }
+
+    @Test
+    void errorsFollowAcceptQuality() throws Exception {
+        byte[] body = mockMvc.perform(
+                get("/api/contacts/unknown")
+                        .accept("application/json;q=0.5, application/cbor")
+                        .header("X-API-TOKEN", "TEST")
+        ).andExpectAll(
+                status().isNotFound(),
+                content().contentType(MediaType.APPLICATION_CBOR)
+        ).andReturn().getResponse().getContentAsByteArray();
+
+        WebResponse<String> response = cborMapper.readValue(body, new TypeReference<>() {
+        });
+        assertEquals("Contact not found", response.getErrors());
+    }
+
+    @Test
+    void jsonStaysTheDefault() throws Exception {
+        String body = mockMvc.perform(
+                get("/api/users/current")
+                        .header("X-API-TOKEN", "TEST")
+        ).andExpectAll(
+                status().isOk(),
+                content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
+        ).andReturn().getResponse().getContentAsString();
+
+        WebResponse<Object> response = mapper.readValue(body, new TypeReference<>() {
+        });
+        assertNotNull(response.getData());
+    }
+}
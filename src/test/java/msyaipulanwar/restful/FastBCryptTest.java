@@ -0,0 +1,35 @@
+package msyaipulanwar.restful;
+
+import msyaipulanwar.restful.security.BCrypt;
+import msyaipulanwar.restful.security.FastBCrypt;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FastBCryptTest {
+    private static final String[] PASSWORDS = {
+            "", "a", "admin", "password123", "ünïcødé ☃", "ÿ£\u0080abc", "x".repeat(100)
+    };
+
+    @Test
+    void sameHashAsReference() {
+        for (String password : PASSWORDS) {
+            for (String prefix : new String[]{"$2a", "$2b", "$2y"}) {
+                String salt = BCrypt.gensalt(prefix, 4);
+                assertEquals(BCrypt.hashpw(password, salt), FastBCrypt.hashpw(password, salt));
+
+                String buggySalt = "$2x" + salt.substring(3);
+                assertEquals(BCrypt.hashpw(password, buggySalt), FastBCrypt.hashpw(password, buggySalt));
+            }
+        }
+    }
+
+    @Test
+    void checkReferenceHash() {
+        for (String password : PASSWORDS) {
+            String hashed = BCrypt.hashpw(password, BCrypt.gensalt(4));
+            assertTrue(FastBCrypt.checkpw(password, hashed));
+            assertFalse(FastBCrypt.checkpw("y" + password, hashed));
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package msyaipulanwar.restful;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import msyaipulanwar.restful.cache.ContactCache;
+import msyaipulanwar.restful.cache.TokenCache;
+import msyaipulanwar.restful.entity.User;
+import msyaipulanwar.restful.model.ContactResponse;
+import msyaipulanwar.restful.model.CreateContactRequest;
+import msyaipulanwar.restful.model.PatchContactRequest;
+import msyaipulanwar.restful.model.UpdateContactRequest;
+import msyaipulanwar.restful.model.WebResponse;
+import msyaipulanwar.restful.outbox.ContactEvents;
+import msyaipulanwar.restful.outbox.OutboxDispatcher;
+import msyaipulanwar.restful.repository.AddressRepository;
+import msyaipulanwar.restful.repository.ContactRepository;
+import msyaipulanwar.restful.repository.UserRepository;
+import msyaipulanwar.restful.security.BCrypt;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Uses the default file sink. Every cached test context runs its own dispatcher against
+ * the same database and file, so the events are looked up in the file whichever
+ * dispatcher published them.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class OutboxTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ContactRepository contactRepository;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private TokenCache tokenCache;
+
+    @Autowired
+    private ContactCache contactCache;
+
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Value("${app.outbox.file.path}")
+    private Path path;
+
+    @BeforeEach
+    void setUp() {
+        tokenCache.invalidateAll();
+        contactCache.invalidateAll();
+        addressRepository.deleteAll();
+        contactRepository.deleteAll();
+        userRepository.deleteAll();
+
+        User user = new User();
+        user.setUsername("admin");
+        user.setPassword(BCrypt.hashpw("admin", BCrypt.gensalt()));
+        user.setName("admin");
+        user.setToken("TEST");
+        user.setTokenExpired(System.currentTimeMillis() * 1000 * 60);
+        userRepository.save(user);
+    }
+
+    private List<JsonNode> events(String contactId, int expected) throws Exception {
+        List<JsonNode> events = new ArrayList<>();
+        for (int attempt = 0; attempt < 50 && events.size() < expected; attempt++) {
+            outboxDispatcher.dispatch();
+            events.clear();
+            if (Files.exists(path)) {
+                for (String line : Files.readAllLines(path)) {
+                    JsonNode event = mapper.readTree(line);
+                    if (contactId.equals(event.get("aggregateId").asText())) {
+                        events.add(event);
+                    }
+                }
+            }
+            if (events.size() < expected) {
+                Thread.sleep(100);
+            }
+        }
+        // dispatchers of different contexts may append concurrently, ids are time-ordered
+        events.sort(Comparator.comparing(event -> event.get("id").asText()));
+        return events;
+    }
+
+    @Test
+    void contactChangesArePublished() throws Exception {
+        CreateContactRequest createContactRequest = new CreateContactRequest();
+        createContactRequest.setFirstName("test");
+        createContactRequest.setEmail("test@gmail.com");
+
+        String id = mapper.readValue(mockMvc.perform(
+                post("/api/contacts")
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .header("X-API-TOKEN", "TEST")
+                        .content(mapper.writeValueAsString(createContactRequest))
+        ).andExpectAll(
+                status().isOk()
+        ).andReturn().getResponse().getContentAsString(), new TypeReference<WebResponse<ContactResponse>>() {
+        }).getData().getId();
+
+        UpdateContactRequest updateContactRequest = new UpdateContactRequest();
+        updateContactRequest.setFirstName("after update");
+        mockMvc.perform(
+                put("/api/contacts/" + id)
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .header("X-API-TOKEN", "TEST")
+                        .content(mapper.writeValueAsString(updateContactRequest))
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        // rolled back with the failed write, so no event
+        PatchContactRequest patchContactRequest = new PatchContactRequest();
+        patchContactRequest.setFirstName("stale");
+        mockMvc.perform(
+                patch("/api/contacts/" + id)
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .header("X-API-TOKEN", "TEST")
+                        .header("If-Match", "\"999\"")
+                        .content(mapper.writeValueAsString(patchContactRequest))
+        ).andExpectAll(
+                status().isPreconditionFailed()
+        );
+
+        mockMvc.perform(
+                delete("/api/contacts/" + id)
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .header("X-API-TOKEN", "TEST")
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        List<JsonNode> events = events(id, 3);
+        assertEquals(3, events.size());
+        assertEquals(ContactEvents.CREATED, events.get(0).get("type").asText());
+        assertEquals("test", events.get(0).get("payload").get("firstName").asText());
+        assertEquals(ContactEvents.UPDATED, events.get(1).get("type").asText());
+        assertEquals("after update", events.get(1).get("payload").get("firstName").asText());
+        assertEquals(0, events.get(0).get("payload").get("version").asLong());
+        assertEquals(1, events.get(1).get("payload").get("version").asLong());
+        assertTrue(events.get(1).get("payload").get("changeSeq").asLong()
+                > events.get(0).get("payload").get("changeSeq").asLong());
+        assertEquals(ContactEvents.DELETED, events.get(2).get("type").asText());
+        assertTrue(events.get(2).get("payload").get("changeSeq").asLong()
+                > events.get(1).get("payload").get("changeSeq").asLong());
+        assertEquals("admin", events.get(2).get("username").asText());
+    }
+}
@@ -0,0 +1,40 @@
+package msyaipulanwar.restful;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import msyaipulanwar.restful.exception.ApiError;
+import msyaipulanwar.restful.exception.ApiException;
+import msyaipulanwar.restful.security.BCrypt;
+import msyaipulanwar.restful.security.BCryptWorkFactor;
+import msyaipulanwar.restful.security.PasswordHasher;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHasherTest {
+
+    @Test
+    void rejectsWhenPoolIsBusy() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PasswordHasher hasher = new PasswordHasher(new BCryptWorkFactor(4, 250, 4, 16), 1, 0, registry);
+        try {
+            // a 2^14 round check keeps the only thread busy for a while
+            String slow = BCrypt.gensalt(14);
+            CompletableFuture<Boolean> busy = CompletableFuture.supplyAsync(() -> hasher.check("rahasia", slow));
+            while (registry.get("executor.active").tag("name", "passwordHash").gauge().value() < 1) {
+                assertFalse(busy.isDone());
+                Thread.sleep(1);
+            }
+
+            ApiException exception = assertThrows(ApiException.class, () -> hasher.hash("rahasia"));
+            assertEquals(ApiError.SERVER_BUSY, exception.getError());
+            assertEquals(503, exception.getStatusCode().value());
+
+            assertFalse(busy.get());
+            assertTrue(hasher.check("rahasia", hasher.hash("rahasia")));
+        } finally {
+            hasher.shutdown();
+        }
+    }
+}
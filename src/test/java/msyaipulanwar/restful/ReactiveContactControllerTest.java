@@ -0,0 +1,292 @@
+package msyaipulanwar.restful;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import msyaipulanwar.restful.cache.TokenCache;
+import msyaipulanwar.restful.entity.Contact;
+import msyaipulanwar.restful.entity.User;
+import msyaipulanwar.restful.entity.Uuids;
+import msyaipulanwar.restful.model.ContactChangeResponse;
+import msyaipulanwar.restful.model.ContactResponse;
+import msyaipulanwar.restful.model.CreateContactRequest;
+import msyaipulanwar.restful.model.ImportContactResponse;
+import msyaipulanwar.restful.model.PatchContactRequest;
+import msyaipulanwar.restful.model.WebResponse;
+import msyaipulanwar.restful.repository.AddressRepository;
+import msyaipulanwar.restful.repository.ContactRepository;
+import msyaipulanwar.restful.repository.UserRepository;
+import msyaipulanwar.restful.security.BCrypt;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.main.web-application-type=reactive")
+@ActiveProfiles("reactive")
+@AutoConfigureWebTestClient
+class ReactiveContactControllerTest {
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ContactRepository contactRepository;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private TokenCache tokenCache;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        tokenCache.invalidateAll();
+        addressRepository.deleteAll();
+        contactRepository.deleteAll();
+        userRepository.deleteAll();
+        user = new User();
+        user.setUsername("admin");
+        user.setPassword(BCrypt.hashpw("admin", BCrypt.gensalt()));
+        user.setName("admin");
+        user.setToken("TEST");
+        user.setTokenExpired(System.currentTimeMillis() * 1000 * 60);
+        userRepository.save(user);
+    }
+
+    @Test
+    void createUnauthorized() {
+        CreateContactRequest request = new CreateContactRequest();
+        request.setFirstName("test");
+
+        WebResponse<String> response = read(webTestClient.post().uri("/api/contacts")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue(request)
+                .exchange()
+                .expectStatus().isUnauthorized(), new TypeReference<>() {
+        });
+
+        assertEquals("Unauthorized", response.getErrors());
+        assertNull(response.getData());
+    }
+
+    @Test
+    void createBadRequest() {
+        CreateContactRequest request = new CreateContactRequest();
+        request.setFirstName("test");
+        request.setPhone("+628968625w427");
+
+        WebResponse<String> response = read(webTestClient.post().uri("/api/contacts")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .header("X-API-TOKEN", "TEST")
+                .bodyValue(request)
+                .exchange()
+                .expectStatus().isBadRequest(), new TypeReference<>() {
+        });
+
+        assertNotNull(response.getErrors());
+    }
+
+    @Test
+    void createAndGet() {
+        CreateContactRequest request = new CreateContactRequest();
+        request.setFirstName("Budi");
+        request.setLastName("Santoso");
+        request.setEmail("budi@example.com");
+        request.setPhone("08123456789");
+
+        WebResponse<ContactResponse> created = read(webTestClient.post().uri("/api/contacts")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .header("X-API-TOKEN", "TEST")
+                .bodyValue(request)
+                .exchange()
+                .expectStatus().isOk(), new TypeReference<>() {
+        });
+        assertNull(created.getErrors());
+        assertEquals("Budi", created.getData().getFirstName());
+        assertTrue(contactRepository.existsById(Uuids.parse(created.getData().getId()).orElseThrow()));
+
+        WebResponse<ContactResponse> found = read(webTestClient.get().uri("/api/contacts/" + created.getData().getId())
+                .accept(MediaType.APPLICATION_JSON)
+                .header("X-API-TOKEN", "TEST")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"0\""), new TypeReference<>() {
+        });
+        assertEquals(created.getData().getId(), found.getData().getId());
+        assertEquals("budi@example.com", found.getData().getEmail());
+
+        webTestClient.get().uri("/api/contacts/" + created.getData().getId())
+                .accept(MediaType.APPLICATION_JSON)
+                .header("X-API-TOKEN", "TEST")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"0\"")
+                .exchange()
+                .expectStatus().isNotModified();
+    }
+
+    @Test
+    void getNotFound() {
+        WebResponse<String> response = read(webTestClient.get().uri("/api/contacts/" + Uuids.timeOrdered())
+                .accept(MediaType.APPLICATION_JSON)
+                .header("X-API-TOKEN", "TEST")
+                .exchange()
+                .expectStatus().isNotFound(), new TypeReference<>() {
+        });
+
+        assertEquals("Contact not found", response.getErrors());
+    }
+
+    @Test
+    void patchVersionMismatch() {
+        Contact contact = contact(0);
+
+        PatchContactRequest request = new PatchContactRequest();
+        request.setFirstName("Baru");
+
+        webTestClient.patch().uri("/api/contacts/" + contact.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .header("X-API-TOKEN", "TEST")
+                .header(HttpHeaders.IF_MATCH, "\"5\"")
+                .bodyValue(request)
+                .exchange()
+                .expectStatus().isEqualTo(412);
+
+        WebResponse<ContactResponse> patched = read(webTestClient.patch().uri("/api/contacts/" + contact.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .header("X-API-TOKEN", "TEST")
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .bodyValue(request)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"1\""), new TypeReference<>() {
+        });
+        assertEquals("Baru", patched.getData().getFirstName());
+        assertEquals("contact 0", patched.getData().getLastName());
+    }
+
+    @Test
+    void delete() {
+        Contact contact = contact(0);
+
+        WebResponse<String> response = read(webTestClient.delete().uri("/api/contacts/" + contact.getId())
+                .header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                .accept(MediaType.APPLICATION_JSON)
+                .header("X-API-TOKEN", "TEST")
+                .exchange()
+                .expectStatus().isOk(), new TypeReference<>() {
+        });
+
+        assertEquals("Ok", response.getData());
+        assertFalse(contactRepository.existsById(contact.getId()));
+    }
+
+    @Test
+    void searchPages() {
+        for (int i = 0; i < 15; i++) {
+            contact(i);
+        }
+
+        WebResponse<List<ContactResponse>> first = read(webTestClient.get().uri("/api/contacts?name=contact&size=10")
+                .accept(MediaType.APPLICATION_JSON)
+                .header("X-API-TOKEN", "TEST")
+                .exchange()
+                .expectStatus().isOk(), new TypeReference<>() {
+        });
+        assertEquals(10, first.getData().size());
+        assertEquals(10, first.getPaging().getSize());
+        assertNotNull(first.getPaging().getNext());
+
+        WebResponse<List<ContactResponse>> second = read(webTestClient.get()
+                .uri("/api/contacts?name=contact&size=10&after=" + first.getPaging().getNext())
+                .accept(MediaType.APPLICATION_JSON)
+                .header("X-API-TOKEN", "TEST")
+                .exchange()
+                .expectStatus().isOk(), new TypeReference<>() {
+        });
+        assertEquals(5, second.getData().size());
+        assertNull(second.getPaging().getNext());
+    }
+
+    @Test
+    void bulkChangesImportAndExport() {
+        CreateContactRequest request = new CreateContactRequest();
+        request.setFirstName("Budi");
+        WebResponse<List<WebResponse<ContactResponse>>> bulk = read(webTestClient.post().uri("/api/contacts/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .header("X-API-TOKEN", "TEST")
+                .bodyValue(List.of(request))
+                .exchange()
+                .expectStatus().isOk(), new TypeReference<>() {
+        });
+        assertEquals("Budi", bulk.getData().get(0).getData().getFirstName());
+
+        WebResponse<ImportContactResponse> imported = read(webTestClient.post().uri("/api/contacts/import")
+                .contentType(MediaType.parseMediaType("text/csv"))
+                .accept(MediaType.APPLICATION_JSON)
+                .header("X-API-TOKEN", "TEST")
+                .bodyValue("firstName,email\njoko,joko@gmail.com\n")
+                .exchange()
+                .expectStatus().isOk(), new TypeReference<>() {
+        });
+        assertEquals(1, imported.getData().getInserted());
+
+        // literal paths, not contact ids
+        WebResponse<List<ContactChangeResponse>> changes = read(webTestClient.get().uri("/api/contacts/changes")
+                .accept(MediaType.APPLICATION_JSON)
+                .header("X-API-TOKEN", "TEST")
+                .exchange()
+                .expectStatus().isOk(), new TypeReference<>() {
+        });
+        assertEquals(2, changes.getData().size());
+
+        String export = webTestClient.get().uri("/api/contacts/export?format=csv")
+                .header("X-API-TOKEN", "TEST")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).returnResult().getResponseBody();
+        assertNotNull(export);
+        assertEquals(3, export.split("\n").length);
+    }
+
+    private Contact contact(int i) {
+        Contact contact = new Contact();
+        contact.setId(Uuids.timeOrdered());
+        contact.setUser(user);
+        contact.setFirstName("Test");
+        contact.setLastName("contact " + i);
+        contact.setEmail("test" + i + "@example.com");
+        contact.setPhone("0812345678" + i);
+        return contactRepository.save(contact);
+    }
+
+    private <T> WebResponse<T> read(WebTestClient.ResponseSpec spec, TypeReference<WebResponse<T>> type) {
+        byte[] body = spec.expectBody().returnResult().getResponseBody();
+        try {
+            return mapper.readValue(body, type);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
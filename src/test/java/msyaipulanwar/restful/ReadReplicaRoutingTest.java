@@ -0,0 +1,215 @@
+package msyaipulanwar.restful;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import msyaipulanwar.restful.cache.ContactCache;
+import msyaipulanwar.restful.cache.TokenCache;
+import msyaipulanwar.restful.entity.Contact;
+import msyaipulanwar.restful.entity.User;
+import msyaipulanwar.restful.entity.Uuids;
+import msyaipulanwar.restful.model.TokenResponse;
+import msyaipulanwar.restful.model.UpdateContactRequest;
+import msyaipulanwar.restful.model.WebResponse;
+import msyaipulanwar.restful.repository.AddressRepository;
+import msyaipulanwar.restful.repository.ContactRepository;
+import msyaipulanwar.restful.repository.UserRepository;
+import msyaipulanwar.restful.security.BCrypt;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The replica points at the primary database as a stand-in, routing is observed through
+ * the connection acquisitions of the "replica" pool. Its sessions are read only on the
+ * server, whatever the transaction sets, so a write that ends up there fails.
+ */
+@SpringBootTest(properties = {
+        "app.datasource.replica.url=${spring.datasource.url}&readOnlyPropagatesToServer=false&sessionVariables=transaction_read_only=1",
+        "app.datasource.read-your-writes-window=1m"
+})
+@AutoConfigureMockMvc
+class ReadReplicaRoutingTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ContactRepository contactRepository;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private TokenCache tokenCache;
+
+    @Autowired
+    private ContactCache contactCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    private Contact contact;
+
+    @BeforeEach
+    void setUp() {
+        tokenCache.invalidateAll();
+        contactCache.invalidateAll();
+        addressRepository.deleteAll();
+        contactRepository.deleteAll();
+        userRepository.deleteAll();
+
+        User user = new User();
+        user.setUsername("admin");
+        user.setPassword(BCrypt.hashpw("admin", BCrypt.gensalt()));
+        user.setName("admin");
+        user.setToken("TEST");
+        user.setTokenExpired(System.currentTimeMillis() * 1000 * 60);
+        userRepository.save(user);
+
+        contact = new Contact();
+        contact.setId(Uuids.timeOrdered());
+        contact.setFirstName("test");
+        contact.setUser(user);
+        contactRepository.save(contact);
+    }
+
+    private long replicaAcquisitions() {
+        Timer timer = meterRegistry.find("hikaricp.connections.acquire").tag("pool", "replica").timer();
+        return timer == null ? 0 : timer.count();
+    }
+
+    private void search() throws Exception {
+        search("TEST");
+    }
+
+    private void search(String token) throws Exception {
+        mockMvc.perform(
+                get("/api/contacts")
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+                        .header("X-API-TOKEN", token)
+        ).andExpectAll(
+                status().isOk()
+        );
+    }
+
+    @Test
+    void readOnlyGoesToReplicaUntilOwnWrite() throws Exception {
+        // resolves the token once, later requests start without a connection
+        search();
+
+        long before = replicaAcquisitions();
+        search();
+        long afterRead = replicaAcquisitions();
+        assertTrue(afterRead > before);
+
+        UpdateContactRequest request = new UpdateContactRequest();
+        request.setFirstName("after update");
+        mockMvc.perform(
+                put("/api/contacts/" + contact.getId())
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .header("X-API-TOKEN", "TEST")
+                        .content(mapper.writeValueAsString(request))
+        ).andExpectAll(
+                status().isOk()
+        );
+        assertEquals(afterRead, replicaAcquisitions());
+
+        // within the read-your-writes window the same user reads from the primary
+        search();
+        assertEquals(afterRead, replicaAcquisitions());
+    }
+
+    @Test
+    void tokenIsResolvedOnPrimary() throws Exception {
+        // a lagging replica does not know a token issued a moment ago, so resolving it must
+        // not touch the replica, here a request whose handler reads nothing else
+        String body = mockMvc.perform(
+                post("/api/auth/login")
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .content(mapper.writeValueAsString(Map.of("username", "admin", "password", "admin")))
+        ).andExpectAll(
+                status().isOk()
+        ).andReturn().getResponse().getContentAsString();
+        WebResponse<TokenResponse> login = mapper.readValue(body, new TypeReference<>() {
+        });
+
+        tokenCache.invalidateAll();
+        long before = replicaAcquisitions();
+        mockMvc.perform(
+                get("/api/users/current")
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+                        .header("X-API-TOKEN", login.getData().getToken())
+        ).andExpectAll(
+                status().isOk()
+        );
+        assertEquals(before, replicaAcquisitions());
+    }
+
+    @Test
+    void writeAfterReadInOneRequestGoesToPrimary() throws Exception {
+        // a user without writes in the window, so the read goes to the replica
+        User reader = new User();
+        reader.setUsername("reader");
+        reader.setPassword(BCrypt.hashpw("reader", BCrypt.gensalt()));
+        reader.setName("reader");
+        reader.setToken("READER");
+        reader.setTokenExpired(System.currentTimeMillis() * 1000 * 60);
+        userRepository.save(reader);
+
+        Contact existing = new Contact();
+        existing.setId(Uuids.timeOrdered());
+        existing.setFirstName("existing");
+        existing.setUser(reader);
+        contactRepository.save(existing);
+
+        search("READER");
+
+        long before = replicaAcquisitions();
+        String body = mockMvc.perform(
+                post("/api/batch")
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .header("X-API-TOKEN", "READER")
+                        .content(mapper.writeValueAsString(Map.of(
+                                "mode", "INDEPENDENT",
+                                "operations", List.of(
+                                        Map.of("op", "contact.get", "id", existing.getId().toString()),
+                                        Map.of("op", "contact.create", "body", Map.of("firstName", "created"))))))
+        ).andExpectAll(
+                status().isOk()
+        ).andReturn().getResponse().getContentAsString();
+
+        WebResponse<List<WebResponse<Map<String, Object>>>> response = mapper.readValue(body, new TypeReference<>() {
+        });
+        // the create takes its own primary connection instead of reusing the replica one
+        response.getData().forEach(result -> assertNull(result.getErrors()));
+        assertTrue(replicaAcquisitions() > before);
+        assertEquals(2, contactRepository.findAll().stream()
+                .filter(contact -> contact.getUser().getUsername().equals("reader"))
+                .count());
+    }
+}
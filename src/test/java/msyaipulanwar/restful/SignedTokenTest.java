@@ -0,0 +1,102 @@
+package msyaipulanwar.restful;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import msyaipulanwar.restful.cache.ContactCache;
+import msyaipulanwar.restful.cache.TokenCache;
+import msyaipulanwar.restful.entity.User;
+import msyaipulanwar.restful.model.UserResponse;
+import msyaipulanwar.restful.model.WebResponse;
+import msyaipulanwar.restful.repository.AddressRepository;
+import msyaipulanwar.restful.repository.ContactRepository;
+import msyaipulanwar.restful.repository.UserRepository;
+import msyaipulanwar.restful.security.BCrypt;
+import msyaipulanwar.restful.security.TokenSigner;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "app.auth.token-mode=signed",
+        "app.auth.active-key=k1",
+        "app.auth.keys.k1=MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY="
+})
+@AutoConfigureMockMvc
+class SignedTokenTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ContactRepository contactRepository;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private TokenCache tokenCache;
+
+    @Autowired
+    private ContactCache contactCache;
+
+    @Autowired
+    private TokenSigner tokenSigner;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @BeforeEach
+    void setUp() {
+        tokenCache.invalidateAll();
+        contactCache.invalidateAll();
+        addressRepository.deleteAll();
+        contactRepository.deleteAll();
+        userRepository.deleteAll();
+        User user = new User();
+        user.setUsername("admin");
+        user.setPassword(BCrypt.hashpw("admin", BCrypt.gensalt()));
+        user.setName("Admin");
+        userRepository.save(user);
+    }
+
+    @Test
+    void getCurrentUser() throws Exception {
+        String token = tokenSigner.sign("admin", System.currentTimeMillis() * 1000 * 60);
+
+        String body = mockMvc.perform(
+                get("/api/users/current")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", token)
+        ).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+
+        WebResponse<UserResponse> response = mapper.readValue(body, new TypeReference<>() {
+        });
+        assertEquals("admin", response.getData().getUsername());
+        assertEquals("Admin", response.getData().getName());
+    }
+
+    @Test
+    void deletedUserIsUnauthorized() throws Exception {
+        String token = tokenSigner.sign("ghost", System.currentTimeMillis() * 1000 * 60);
+
+        String body = mockMvc.perform(
+                get("/api/users/current")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", token)
+        ).andExpect(status().isUnauthorized()).andReturn().getResponse().getContentAsString();
+
+        WebResponse<String> response = mapper.readValue(body, new TypeReference<>() {
+        });
+        assertEquals("Unauthorized", response.getErrors());
+    }
+}
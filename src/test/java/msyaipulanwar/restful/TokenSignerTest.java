@@ -0,0 +1,57 @@
+package msyaipulanwar.restful;
+
+import msyaipulanwar.restful.security.TokenSigner;
+import msyaipulanwar.restful.security.TokenSigningProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenSignerTest {
+
+    private TokenSigner signer(String activeKey, Map<String, String> keys) {
+        TokenSigningProperties properties = new TokenSigningProperties();
+        properties.setTokenMode("signed");
+        properties.setActiveKey(activeKey);
+        properties.setKeys(keys);
+        return new TokenSigner(properties);
+    }
+
+    private String secret(String seed) {
+        return Base64.getEncoder().encodeToString((seed + "-0123456789abcdef0123456789abcdef").getBytes());
+    }
+
+    @Test
+    void signAndVerify() {
+        TokenSigner signer = signer("k1", Map.of("k1", secret("k1")));
+
+        String token = signer.sign("admin", 12345L);
+        assertTrue(signer.isSigned(token));
+
+        TokenSigner.Claims claims = signer.verify(token).orElseThrow();
+        assertEquals("admin", claims.username());
+        assertEquals(12345L, claims.expireAt());
+    }
+
+    @Test
+    void rejectTampered() {
+        TokenSigner signer = signer("k1", Map.of("k1", secret("k1")));
+        String token = signer.sign("admin", 12345L);
+
+        assertTrue(signer.verify(token.replace("12345", "99999")).isEmpty());
+        assertTrue(signer.verify("not-a-token").isEmpty());
+    }
+
+    @Test
+    void verifyAfterRotation() {
+        String token = signer("k1", Map.of("k1", secret("k1"))).sign("admin", 12345L);
+
+        TokenSigner rotated = signer("k2", Map.of("k1", secret("k1"), "k2", secret("k2")));
+        assertTrue(rotated.verify(token).isPresent());
+
+        TokenSigner retired = signer("k2", Map.of("k2", secret("k2")));
+        assertTrue(retired.verify(token).isEmpty());
+    }
+}
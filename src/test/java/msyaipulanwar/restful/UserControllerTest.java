@@ -3,12 +3,15 @@ package msyaipulanwar.restful;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
+import msyaipulanwar.restful.cache.TokenCache;
 import msyaipulanwar.restful.entity.User;
 import msyaipulanwar.restful.model.RegisterUserRequest;
 import msyaipulanwar.restful.model.UpdateUserRequest;
 import msyaipulanwar.restful.model.UserResponse;
 import msyaipulanwar.restful.model.WebResponse;
+import msyaipulanwar.restful.repository.AddressRepository;
 import msyaipulanwar.restful.repository.ContactRepository;
+import msyaipulanwar.restful.repository.UserPrincipal;
 import msyaipulanwar.restful.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -21,6 +24,7 @@ import org.springframework.test.web.servlet.MockMvc;
 import static org.hibernate.validator.internal.util.Contracts.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -40,8 +44,16 @@ class UserControllerTest {
      @Autowired
      private ContactRepository contactRepository;
 
+     @Autowired
+     private AddressRepository addressRepository;
+
+     @Autowired
+     private TokenCache tokenCache;
+
      @BeforeEach
      void setUp() {
+         tokenCache.invalidateAll();
+         addressRepository.deleteAll();
          contactRepository.deleteAll();
          userRepository.deleteAll();
 
@@ -293,4 +305,32 @@ class UserControllerTest {
                 });
     }
 
+    @Test
+    void updateUserInvalidatesEveryCachedToken() throws Exception {
+        User user = new User();
+        user.setName("test");
+        user.setPassword("test");
+        user.setUsername("test");
+        user.setToken("TEST");
+        user.setTokenExpired(System.currentTimeMillis()*1000*2);
+        userRepository.save(user);
+        // like a signed token, cached under a token that is not the stored one
+        tokenCache.put("SIGNED", new UserPrincipal("test", "test", "TEST", user.getTokenExpired()));
+
+        UpdateUserRequest request = new UpdateUserRequest();
+        request.setName("test5");
+
+        mockMvc.perform(
+                        patch("/api/users/current")
+                                .accept(MediaType.APPLICATION_JSON_VALUE)
+                                .header("X-API-TOKEN", "TEST")
+                                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                                .content(objectMapper.writeValueAsString(request)))
+                .andExpectAll(
+                        status().isOk());
+
+        assertTrue(tokenCache.get("TEST").isEmpty());
+        assertTrue(tokenCache.get("SIGNED").isEmpty());
+    }
+
 }
@@ -0,0 +1,53 @@
+package msyaipulanwar.restful;
+
+import msyaipulanwar.restful.entity.Uuids;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UuidsTest {
+
+    @Test
+    void timeOrderedIsVersion7() {
+        UUID id = Uuids.timeOrdered();
+
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+        long millis = id.getMostSignificantBits() >>> 16;
+        assertTrue(Math.abs(System.currentTimeMillis() - millis) < 60_000);
+    }
+
+    @Test
+    void timeOrderedIsIncreasing() {
+        String previous = Uuids.timeOrdered().toString();
+        for (int i = 0; i < 100_000; i++) {
+            String next = Uuids.timeOrdered().toString();
+            // the canonical form is fixed width lowercase hex, so it sorts like the bytes
+            assertTrue(next.compareTo(previous) > 0, next + " <= " + previous);
+            previous = next;
+        }
+    }
+
+    @Test
+    void parse() {
+        UUID id = Uuids.timeOrdered();
+
+        assertEquals(id, Uuids.parse(id.toString()).orElseThrow());
+        assertTrue(Uuids.parse("798778789").isEmpty());
+        assertTrue(Uuids.parse("1-1-1-1-1").isEmpty());
+        assertTrue(Uuids.parse("zzzzzzzz-zzzz-zzzz-zzzz-zzzzzzzzzzzz").isEmpty());
+        assertTrue(Uuids.parse(null).isEmpty());
+    }
+
+    @Test
+    void bytesRoundTrip() {
+        UUID id = Uuids.timeOrdered();
+        byte[] bytes = Uuids.toBytes(id);
+
+        assertEquals(16, bytes.length);
+        assertEquals((byte) (id.getMostSignificantBits() >>> 56), bytes[0]);
+        assertEquals(id, Uuids.fromBytes(bytes));
+    }
+}
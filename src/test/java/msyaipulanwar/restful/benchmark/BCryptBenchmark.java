@@ -0,0 +1,63 @@
+package msyaipulanwar.restful.benchmark;
+
+import msyaipulanwar.restful.security.BCrypt;
+import msyaipulanwar.restful.security.FastBCrypt;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the reference {@link BCrypt} with {@link FastBCrypt}. Run the main method from
+ * the IDE, or after {@code mvn test-compile} with the test classpath, and add
+ * {@code -prof gc} to the options to see the allocation difference.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BCryptBenchmark {
+
+    @Param({"4", "10"})
+    private int logRounds;
+
+    private String salt;
+
+    private String hashed;
+
+    @Setup
+    public void setUp() {
+        salt = BCrypt.gensalt(logRounds);
+        hashed = BCrypt.hashpw("rahasia", salt);
+    }
+
+    @Benchmark
+    public String hashReference() {
+        return BCrypt.hashpw("rahasia", salt);
+    }
+
+    @Benchmark
+    public String hashFast() {
+        return FastBCrypt.hashpw("rahasia", salt);
+    }
+
+    @Benchmark
+    public boolean checkReference() {
+        return BCrypt.checkpw("rahasia", hashed);
+    }
+
+    @Benchmark
+    public boolean checkFast() {
+        return FastBCrypt.checkpw("rahasia", hashed);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(BCryptBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,83 @@
+package msyaipulanwar.restful.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import msyaipulanwar.restful.exception.ApiError;
+import msyaipulanwar.restful.exception.ApiException;
+import msyaipulanwar.restful.model.WebResponse;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a 401 from throw to body bytes: a new {@link ResponseStatusException} plus a
+ * freshly serialized WebResponse against a stackless {@link ApiException} plus the
+ * cached body. The throw happens {@code depth} frames down, a servlet request with the
+ * Spring MVC filters and dispatch in between is well over 100. Run the main method from the
+ * IDE, or after {@code mvn test-compile} with the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ErrorPathBenchmark {
+
+    @Param({"20", "150"})
+    private int depth;
+
+    private ObjectMapper mapper;
+
+    private Map<ApiError, byte[]> bodies;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        mapper = new ObjectMapper();
+        bodies = new EnumMap<>(ApiError.class);
+        for (ApiError error : ApiError.values()) {
+            bodies.put(error, mapper.writeValueAsBytes(WebResponse.<String>builder().errors(error.getReason()).build()));
+        }
+    }
+
+    @Benchmark
+    public byte[] responseStatusException() throws JsonProcessingException {
+        try {
+            return call(depth, false);
+        } catch (ResponseStatusException e) {
+            return mapper.writeValueAsBytes(WebResponse.<String>builder().errors(e.getReason()).build());
+        }
+    }
+
+    @Benchmark
+    public byte[] apiException() {
+        try {
+            return call(depth, true);
+        } catch (ApiException e) {
+            return bodies.get(e.getError());
+        }
+    }
+
+    private static byte[] call(int depth, boolean stackless) {
+        if (depth > 0) {
+            return call(depth - 1, stackless);
+        }
+        if (stackless) {
+            throw ApiError.UNAUTHORIZED.exception();
+        }
+        throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Unauthorized");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ErrorPathBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,118 @@
+package msyaipulanwar.restful.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import msyaipulanwar.restful.entity.Uuids;
+import msyaipulanwar.restful.model.ContactResponse;
+import msyaipulanwar.restful.model.PagingResponse;
+import msyaipulanwar.restful.model.WebResponse;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares JSON with CBOR for a contact search page ({@code WebResponse<List<ContactResponse>>}):
+ * encode and decode time here, payload size printed by {@link #main} before the run. Run the
+ * main method from the IDE, or after {@code mvn test-compile} with the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+    private static final TypeReference<WebResponse<List<ContactResponse>>> PAGE = new TypeReference<>() {
+    };
+
+    @Param({"10", "100"})
+    private int contacts;
+
+    private WebResponse<List<ContactResponse>> page;
+
+    private ObjectWriter jsonWriter;
+
+    private ObjectReader jsonReader;
+
+    private ObjectWriter cborWriter;
+
+    private ObjectReader cborReader;
+
+    private byte[] json;
+
+    private byte[] cbor;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        page = page(contacts);
+        ObjectMapper jsonMapper = new ObjectMapper();
+        CBORMapper cborMapper = new CBORMapper();
+        jsonWriter = jsonMapper.writerFor(PAGE);
+        jsonReader = jsonMapper.readerFor(PAGE);
+        cborWriter = cborMapper.writerFor(PAGE);
+        cborReader = cborMapper.readerFor(PAGE);
+        json = jsonWriter.writeValueAsBytes(page);
+        cbor = cborWriter.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] writeJson() throws JsonProcessingException {
+        return jsonWriter.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] writeCbor() throws JsonProcessingException {
+        return cborWriter.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public Object readJson() throws IOException {
+        return jsonReader.readValue(json);
+    }
+
+    @Benchmark
+    public Object readCbor() throws IOException {
+        return cborReader.readValue(cbor);
+    }
+
+    static WebResponse<List<ContactResponse>> page(int size) {
+        List<ContactResponse> data = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            data.add(ContactResponse.builder()
+                    .id(Uuids.timeOrdered().toString())
+                    .firstName("Budi " + i)
+                    .lastName("Santoso")
+                    .email("budi" + i + "@example.com")
+                    .phone("0812345678" + (i % 10))
+                    .version((long) i)
+                    .build());
+        }
+        return WebResponse.<List<ContactResponse>>builder()
+                .data(data)
+                .paging(PagingResponse.builder().size(size).next(data.get(size - 1).getId()).build())
+                .build();
+    }
+
+    public static void main(String[] args) throws RunnerException, JsonProcessingException {
+        for (int size : new int[]{10, 100}) {
+            WebResponse<List<ContactResponse>> page = page(size);
+            int json = new ObjectMapper().writeValueAsBytes(page).length;
+            int cbor = new CBORMapper().writeValueAsBytes(page).length;
+            System.out.printf("%d contacts: json=%d bytes, cbor=%d bytes (%.0f%%)%n", size, json, cbor, 100.0 * cbor / json);
+        }
+
+        new Runner(new OptionsBuilder()
+                .include(SerializationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
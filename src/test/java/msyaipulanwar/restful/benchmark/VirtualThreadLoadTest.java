@@ -0,0 +1,216 @@
+package msyaipulanwar.restful.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import msyaipulanwar.restful.SpringRestfulApiApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Starts the application twice, once on Tomcat's platform thread pool and once with
+ * {@code spring.threads.virtual.enabled}, and drives both with the same closed-loop load:
+ * {@code concurrency} clients that each search contacts (a database round trip) and read
+ * the current user in a loop. Prints throughput and p50/p99 latency per mode.
+ * <p>
+ * Needs the MySQL database from application.properties. Run the main method from the IDE,
+ * or after {@code mvn test-compile} with the test classpath; arguments are
+ * {@code [concurrency] [seconds]}, by default 1000 clients for 30 seconds after a 10 second
+ * warmup. Add {@code -Djdk.tracePinnedThreads=short} to log carriers pinned by the
+ * virtual thread run.
+ */
+public class VirtualThreadLoadTest {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        Duration duration = Duration.ofSeconds(args.length > 1 ? Long.parseLong(args[1]) : 30);
+
+        VirtualThreadLoadTest test = new VirtualThreadLoadTest();
+        List<String> results = new ArrayList<>();
+        for (boolean virtual : new boolean[]{false, true}) {
+            results.add(test.run(virtual, concurrency, duration));
+        }
+        results.forEach(System.out::println);
+    }
+
+    private String run(boolean virtual, int concurrency, Duration duration) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SpringRestfulApiApplication.class)
+                .properties("server.port=0",
+                        "spring.threads.virtual.enabled=" + virtual,
+                        "spring.jpa.show-sql=false")
+                .run()) {
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            String token = setUp(baseUrl);
+
+            load(baseUrl, token, concurrency, Duration.ofSeconds(10));
+            Result result = load(baseUrl, token, concurrency, duration);
+            return String.format("%-8s concurrency=%d requests=%d errors=%d throughput=%.0f req/s p50=%.1f ms p99=%.1f ms",
+                    virtual ? "virtual" : "platform", concurrency, result.requests, result.errors,
+                    result.requests / (double) duration.toSeconds(), result.percentile(0.50), result.percentile(0.99));
+        }
+    }
+
+    /**
+     * Registers a fresh user with a few contacts and returns its token.
+     */
+    private String setUp(String baseUrl) throws Exception {
+        String username = "load-" + UUID.randomUUID().toString().substring(0, 8);
+        send(baseUrl + "/api/users", null, "POST",
+                "{\"username\":\"" + username + "\",\"password\":\"rahasia\",\"name\":\"Load Test\"}");
+        JsonNode login = send(baseUrl + "/api/auth/login", null, "POST",
+                "{\"username\":\"" + username + "\",\"password\":\"rahasia\"}");
+        String token = login.path("data").path("token").asText();
+        for (int i = 0; i < 20; i++) {
+            send(baseUrl + "/api/contacts", token, "POST",
+                    "{\"firstName\":\"Load " + i + "\",\"lastName\":\"Test\",\"email\":\"load" + i + "@example.com\",\"phone\":\"0800000" + i + "\"}");
+        }
+        return token;
+    }
+
+    private Result load(String baseUrl, String token, int concurrency, Duration duration) throws InterruptedException {
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Histogram> latencies = new ArrayList<>(concurrency);
+        AtomicLong requests = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        URI[] uris = {URI.create(baseUrl + "/api/contacts?name=Load&size=10"), URI.create(baseUrl + "/api/users/current")};
+
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < concurrency; c++) {
+                Histogram histogram = new Histogram();
+                latencies.add(histogram);
+                clients.submit(() -> {
+                    long sent = 0;
+                    while (System.nanoTime() < deadline) {
+                        HttpRequest request = HttpRequest.newBuilder(uris[(int) (sent++ & 1)])
+                                .header("X-API-TOKEN", token)
+                                .header("Accept", "application/json")
+                                .timeout(Duration.ofSeconds(30))
+                                .build();
+                        long start = System.nanoTime();
+                        requests.incrementAndGet();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() != 200) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        histogram.record(System.nanoTime() - start);
+                    }
+                    return null;
+                });
+            }
+        }
+        return new Result(latencies, requests.get(), errors.get());
+    }
+
+    private JsonNode send(String url, String token, String method, String body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(body));
+        if (token != null) {
+            request.header("X-API-TOKEN", token);
+        }
+        HttpResponse<String> response = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(method + " " + url + " returned " + response.statusCode() + ": " + response.body());
+        }
+        return objectMapper.readTree(response.body());
+    }
+
+    /**
+     * Latency histogram with HdrHistogram-style buckets: exact below 128 microseconds, above
+     * that 64 buckets per power of two, so every request is recorded in constant memory with
+     * under 2% error. Each client owns one, they are merged at the end.
+     */
+    private static final class Histogram {
+        private static final int LINEAR = 128;
+
+        private static final int SUB_BUCKETS = 64;
+
+        private final long[] counts = new long[LINEAR + (63 - 7) * SUB_BUCKETS];
+
+        private void record(long nanos) {
+            counts[index(Math.max(0, nanos / 1000))]++;
+        }
+
+        private void add(Histogram other) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other.counts[i];
+            }
+        }
+
+        private static int index(long micros) {
+            if (micros < LINEAR) {
+                return (int) micros;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(micros);
+            int shift = exponent - 6;
+            return LINEAR + (exponent - 7) * SUB_BUCKETS + (int) ((micros >> shift) - SUB_BUCKETS);
+        }
+
+        /**
+         * @return the lowest value of the bucket, in microseconds
+         */
+        private static long value(int index) {
+            if (index < LINEAR) {
+                return index;
+            }
+            int exponent = (index - LINEAR) / SUB_BUCKETS + 7;
+            long mantissa = (index - LINEAR) % SUB_BUCKETS + SUB_BUCKETS;
+            return mantissa << (exponent - 6);
+        }
+    }
+
+    private static final class Result {
+        private final Histogram histogram = new Histogram();
+
+        private final long total;
+
+        private final long requests;
+
+        private final long errors;
+
+        private Result(List<Histogram> latencies, long requests, long errors) {
+            latencies.forEach(histogram::add);
+            total = Arrays.stream(histogram.counts).sum();
+            this.requests = requests;
+            this.errors = errors;
+        }
+
+        private double percentile(double percentile) {
+            if (total == 0) {
+                return Double.NaN;
+            }
+            long rank = Math.min(total, (long) Math.ceil(total * percentile));
+            long seen = 0;
+            for (int i = 0; i < histogram.counts.length; i++) {
+                seen += histogram.counts[i];
+                if (seen >= rank) {
+                    return Histogram.value(i) / 1000.0;
+                }
+            }
+            return Double.NaN;
+        }
+    }
+}